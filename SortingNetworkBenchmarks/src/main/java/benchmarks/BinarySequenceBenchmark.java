@@ -0,0 +1,82 @@
+package benchmarks;
+
+import hardware.BinarySequence;
+import hardware.PackedSequence;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations on single binary sequences, in byte-per-bit and packed form.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinarySequenceBenchmark {
+
+    @Param({"8", "16", "24"})
+    int wires;
+
+    private BinarySequence sequence;
+    private long packed;
+
+    @Setup
+    public void setUp() {
+        // alternating bits give an unsorted sequence that sort(0, n - 1) changes
+        packed = 0xAAAAAAAAAAAAAAAAL & PackedSequence.mask(wires);
+        sequence = new BinarySequence(packed, wires);
+    }
+
+    @Benchmark
+    public BinarySequence sort() {
+        BinarySequence seq = sequence.clone();
+        seq.sort(0, wires - 1);
+        return seq;
+    }
+
+    @Benchmark
+    public boolean isSorted() {
+        return sequence.isSorted();
+    }
+
+    @Benchmark
+    public BinarySequence increment() {
+        sequence.increment();
+        return sequence;
+    }
+
+    @Benchmark
+    public int hashCodeOfSequence() {
+        return sequence.hashCode();
+    }
+
+    @Benchmark
+    public long packedSort() {
+        return PackedSequence.sort(packed, wires, 0, wires - 1);
+    }
+
+    @Benchmark
+    public boolean packedIsSorted() {
+        return PackedSequence.isSorted(packed);
+    }
+
+    @Benchmark
+    public long packedIncrement() {
+        packed = PackedSequence.increment(packed, wires);
+        return packed;
+    }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import hardware.BinarySequence;
+import hardware.Network;
+import hardware.SequenceSet;
+import hardware.Utilities;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The fixed 16-wire case of the lab: the first 32 comparators of Green's network, and a suffix
+ * of added comparators evaluated on the filter's 151 unsorted outputs.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GreenFilterBenchmark {
+
+    private Network filter;
+    private Network suffix;
+    private Set<BinarySequence> outputs;
+    private SequenceSet packedOutputs;
+    private long[] packedArray;
+
+    @Setup
+    public void setUp() {
+        filter = Utilities.getGreenFilter();
+        suffix = new Network(16);
+        int[][] comparators = {{4, 8}, {5, 10}, {6, 9}, {3, 12}, {13, 14}, {7, 11}, {1, 2}};
+        for (int[] c : comparators) {
+            suffix.addComparator(c[0], c[1]);
+        }
+        outputs = filter.operateOnAll();
+        packedOutputs = filter.operateOnAllPacked();
+        packedArray = packedOutputs.toArray();
+    }
+
+    @Benchmark
+    public Set<BinarySequence> operateOnAll() {
+        return filter.operateOnAll();
+    }
+
+    @Benchmark
+    public Set<BinarySequence> operateOnAllBitSliced() {
+        return filter.operateOnAllBitSliced();
+    }
+
+    @Benchmark
+    public SequenceSet operateOnAllPacked() {
+        return filter.operateOnAllPacked();
+    }
+
+    @Benchmark
+    public SequenceSet[] operateOnAllByWeight() {
+        return filter.operateOnAllByWeight();
+    }
+
+    @Benchmark
+    public boolean isSortingNetwork() {
+        return filter.isSortingNetwork();
+    }
+
+    @Benchmark
+    public long countUnsortedInputs() {
+        return filter.countUnsortedInputs();
+    }
+
+    @Benchmark
+    public Set<BinarySequence> suffixOnOutputs() {
+        return suffix.getUnsortedOutputs(outputs);
+    }
+
+    @Benchmark
+    public SequenceSet suffixOnPackedOutputs() {
+        return suffix.getUnsortedOutputs(packedOutputs);
+    }
+
+    @Benchmark
+    public int[][] unsortedAfterEachComparator() {
+        return Utilities.unsortedAfterEachComparator(packedOutputs);
+    }
+
+    @Benchmark
+    public int diameter() {
+        return Utilities.diameter(outputs);
+    }
+
+    @Benchmark
+    public int diameterPacked() {
+        return Utilities.diameter(packedArray);
+    }
+}
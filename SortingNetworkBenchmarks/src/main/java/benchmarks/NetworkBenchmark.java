@@ -0,0 +1,100 @@
+package benchmarks;
+
+import hardware.BinarySequence;
+import hardware.CompiledNetwork;
+import hardware.Network;
+import hardware.SequenceSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of random networks by wire count and number of comparators. The byte-per-bit
+ * sweep is covered by {@link ReferenceSweepBenchmark}, since it is impractical on the widest
+ * networks measured here.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+
+    @Param({"8", "12", "16", "20", "24"})
+    int wires;
+
+    @Param({"32", "64"})
+    int size;
+
+    private Network network;
+    private CompiledNetwork compiled;
+    private Network suffix;
+    private BinarySequence input;
+    private long packedInput;
+    private Set<BinarySequence> inputs;
+    private SequenceSet packedInputs;
+
+    @Setup
+    public void setUp() {
+        network = RandomNetworks.create(wires, size, 1);
+        compiled = network.compile();
+        suffix = RandomNetworks.create(wires, size / 4, 2);
+        input = new BinarySequence(0xAAAAAAAAAAAAAAAAL, wires);
+        packedInput = input.toLong();
+        packedInputs = network.operateOnAllPacked();
+        inputs = packedInputs.toBinarySequences();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public BinarySequence operateOn() {
+        BinarySequence seq = input.clone();
+        network.operateOn(seq);
+        return seq;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long operateOnPacked() {
+        return network.operateOn(packedInput);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long operateOnCompiled() {
+        return compiled.operateOn(packedInput);
+    }
+
+    @Benchmark
+    public SequenceSet operateOnAllPacked() {
+        return network.operateOnAllPacked();
+    }
+
+    @Benchmark
+    public SequenceSet operateOnAllParallel() {
+        return network.operateOnAllParallel();
+    }
+
+    @Benchmark
+    public Set<BinarySequence> getUnsortedOutputs() {
+        return suffix.getUnsortedOutputs(inputs);
+    }
+
+    @Benchmark
+    public SequenceSet getUnsortedOutputsPacked() {
+        return suffix.getUnsortedOutputs(packedInputs);
+    }
+}
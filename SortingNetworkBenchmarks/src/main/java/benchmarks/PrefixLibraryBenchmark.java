@@ -0,0 +1,55 @@
+package benchmarks;
+
+import hardware.Network;
+import hardware.PrefixLibrary;
+import hardware.SequenceSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of the default prefixes of the library on all inputs at the widths of most
+ * experiments, by the engine chosen automatically and by the parallel sweep it replaces.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixLibraryBenchmark {
+
+    @Param({"17", "20", "24"})
+    int wires;
+
+    @Param({"GREEN", "ODD_EVEN_MERGE", "BITONIC", "PAIRWISE"})
+    PrefixLibrary.Construction construction;
+
+    private Network prefix;
+
+    @Setup
+    public void setUp() {
+        prefix = PrefixLibrary.getPrefix(construction, wires);
+    }
+
+    @Benchmark
+    public SequenceSet operateOnAllFastest() {
+        return prefix.operateOnAllFastest();
+    }
+
+    @Benchmark
+    public SequenceSet operateOnAllParallel() {
+        return prefix.operateOnAllParallel();
+    }
+}
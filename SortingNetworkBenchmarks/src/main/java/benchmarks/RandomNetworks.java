@@ -0,0 +1,34 @@
+package benchmarks;
+
+import hardware.Network;
+import java.util.Random;
+
+/**
+ * Builds reproducible random networks for benchmarks.
+ *
+ * @author Drue Coles
+ */
+final class RandomNetworks {
+
+    private RandomNetworks() {
+    }
+
+    /**
+     * @param n the number of wires
+     * @param size the number of comparators
+     * @param seed the seed of the random number generator
+     * @return a network of random comparators
+     */
+    static Network create(int n, int size, long seed) {
+        Random random = new Random(seed);
+        Network network = new Network(n);
+        while (network.size() < size) {
+            int top = random.nextInt(n);
+            int bottom = random.nextInt(n);
+            if (top != bottom) {
+                network.addComparator(top, bottom);
+            }
+        }
+        return network;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import hardware.BinarySequence;
+import hardware.Network;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The byte-per-bit sweep of {@link Network#operateOnAll()} and its bit-sliced counterpart on the
+ * widths where the byte-per-bit sweep finishes in reasonable time.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReferenceSweepBenchmark {
+
+    @Param({"8", "12", "16"})
+    int wires;
+
+    @Param({"32", "64"})
+    int size;
+
+    private Network network;
+
+    @Setup
+    public void setUp() {
+        network = RandomNetworks.create(wires, size, 1);
+    }
+
+    @Benchmark
+    public Set<BinarySequence> operateOnAll() {
+        return network.operateOnAll();
+    }
+
+    @Benchmark
+    public Set<BinarySequence> operateOnAllBitSliced() {
+        return network.operateOnAllBitSliced();
+    }
+}
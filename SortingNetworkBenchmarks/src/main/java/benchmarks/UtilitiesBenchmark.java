@@ -0,0 +1,70 @@
+package benchmarks;
+
+import hardware.BinarySequence;
+import hardware.SequenceSet;
+import hardware.Utilities;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Diameter of the unsorted output sets of random networks. The sets stay at most 12 wires wide,
+ * since the diameter of a set of binary sequences compares every pair of sequences and would
+ * dominate the run on thousands of 16-wire outputs; GreenFilterBenchmark covers a 16-wire set.
+ *
+ * @author Drue Coles
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilitiesBenchmark {
+
+    @Param({"8", "12"})
+    int wires;
+
+    @Param({"32", "64"})
+    int size;
+
+    private Set<BinarySequence> outputs;
+    private long[] packedOutputs;
+
+    @Setup
+    public void setUp() {
+        SequenceSet set = RandomNetworks.create(wires, size, 1).operateOnAllPacked();
+        outputs = set.toBinarySequences();
+        packedOutputs = set.toArray();
+    }
+
+    @Benchmark
+    public int diameter() {
+        return Utilities.diameter(outputs);
+    }
+
+    @Benchmark
+    public int diameterPacked() {
+        return Utilities.diameter(packedOutputs);
+    }
+
+    @Benchmark
+    public int diameterPackedWithLength() {
+        return Utilities.diameter(packedOutputs, wires);
+    }
+
+    @Benchmark
+    public int diameterParallel() {
+        return Utilities.diameterParallel(packedOutputs, wires);
+    }
+}
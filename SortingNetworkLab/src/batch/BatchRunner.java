@@ -0,0 +1,269 @@
+package batch;
+
+import hardware.Metrics;
+import hardware.Network;
+import hardware.NetworkReader;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates networks from a file or standard input without a display and writes one line of
+ * results per network, in input order: its index, size, depth, number of distinct unsorted
+ * outputs and whether it is a sorting network, separated by tabs.
+ *
+ * Networks are read either one per line in the text format of {@link Network#toString()}, on a
+ * number of wires that must be given, with blank lines and lines starting with '#' skipped, or
+ * from a binary file written by a {@link hardware.NetworkWriter}, which records the wires. They
+ * are evaluated on a pool of threads, each holding the output set of one network at a time, and
+ * only a bounded window of networks waits for a thread. Memory use thus grows with the number of
+ * threads and the output sets of the networks, but not with the length of the input, and results
+ * are written as soon as they are ready.
+ *
+ * With pruning, each network first loses the comparators that never swap on any input, and two
+ * more columns give the number of comparators removed and the pruned network.
+ *
+ * @author Drue Coles
+ */
+public class BatchRunner {
+
+    // networks in flight per thread
+    private static final int WINDOW_PER_THREAD = 4;
+
+    private static final String USAGE = "usage: BatchRunner (--wires n | --binary) "
+            + "[--threads t] [--sorting-only] [--prune] [--metrics seconds] [file | -]";
+
+    private int numWires; // 0 until set, which text input requires
+    private boolean binary;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean sortingOnly;
+    private boolean prune;
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /**
+     * Sets the number of wires of networks in text form, which must be set for text input. It
+     * cannot be inferred from the comparators, since a network that never touches its last wires
+     * would be evaluated, and perhaps found to sort, on fewer wires.
+     *
+     * @param n the number of wires
+     */
+    public void setNumberOfWires(int n) {
+        numWires = n;
+    }
+
+    /**
+     * @param binary true if the input is in the binary network format
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * @param threads the number of networks evaluated at the same time
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Skips counting the unsorted outputs, so that a network can be rejected at its first
+     * unsorted output. The count is then written as "-".
+     *
+     * @param sortingOnly true to report only whether each network sorts
+     */
+    public void setSortingOnly(boolean sortingOnly) {
+        this.sortingOnly = sortingOnly;
+    }
+
+    /**
+     * Removes from each network the comparators that never swap, and reports the pruned network.
+     * The swaps are counted in the sweep that evaluates the network.
+     *
+     * @param prune true to prune redundant comparators
+     */
+    public void setPrune(boolean prune) {
+        this.prune = prune;
+    }
+
+    /**
+     * Evaluates every network in a stream and writes the results.
+     *
+     * @param in the networks
+     * @param out receives a header line and one line per network
+     * @return the number of networks that could not be evaluated
+     * @throws IOException if the input cannot be read
+     * @throws IllegalStateException if the input is text and the number of wires is not set
+     */
+    public int run(InputStream in, PrintStream out) throws IOException {
+        if (!binary && numWires <= 0) {
+            throw new IllegalStateException("The number of wires of text networks is not set");
+        }
+        errors.set(0);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, (r) -> {
+            Thread thread = new Thread(r, "Batch evaluation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        out.println("#index\tsize\tdepth\tunsorted\tsorting"
+                + (prune ? "\tremoved\tpruned" : ""));
+        try {
+            int index = 0;
+            if (binary) {
+                try (NetworkReader reader = new NetworkReader(in)) {
+                    for (Network network = reader.read(); network != null;
+                            network = reader.read()) {
+                        Network current = network;
+                        submit(pool, window, out, index++, () -> evaluate(current));
+                    }
+                }
+            } else {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(in, StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String text = line.trim();
+                    if (text.isEmpty() || text.startsWith("#")) {
+                        continue;
+                    }
+                    // Lines are parsed on the worker threads.
+                    submit(pool, window, out, index++,
+                            () -> evaluate(Network.valueOf(text, numWires)));
+                }
+            }
+            while (!window.isEmpty()) {
+                write(window.poll(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+            out.flush();
+        }
+        return errors.get();
+    }
+
+    private void submit(ExecutorService pool, ArrayDeque<Future<String>> window, PrintStream out,
+            int index, Callable<String> task) {
+        if (window.size() >= WINDOW_PER_THREAD * threads) {
+            write(window.poll(), out);
+        }
+        window.add(pool.submit(() -> {
+            try {
+                return index + "\t" + task.call();
+            } catch (RuntimeException ex) {
+                errors.incrementAndGet();
+                return index + "\terror\t" + ex.getMessage();
+            }
+        }));
+    }
+
+    private void write(Future<String> result, PrintStream out) {
+        String line;
+        try {
+            line = result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for results", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Evaluation failed", ex.getCause());
+        }
+        out.println(line);
+    }
+
+    private String evaluate(Network network) {
+        if (prune) {
+            // Removing comparators that never swap leaves every output unchanged, so the swaps
+            // and the outputs come from the same sweep of the unpruned network.
+            long[] swaps = new long[network.size()];
+            int count = network.operateOnAllCountingSwaps(swaps).size();
+            Network pruned = network.withoutRedundantComparators(swaps);
+            return format(pruned, count) + "\t" + (network.size() - pruned.size()) + "\t"
+                    + pruned;
+        }
+        if (sortingOnly) {
+            return format(network, network.isSortingNetwork() ? 0 : -1);
+        }
+        return format(network, network.operateOnAllFastest().size());
+    }
+
+    // Formats the columns of a network with a number of unsorted outputs, or -1 for some.
+    private String format(Network network, int count) {
+        String unsorted = sortingOnly ? "-" : Integer.toString(count);
+        return network.size() + "\t" + network.depth() + "\t" + unsorted + "\t" + (count == 0);
+    }
+
+    /**
+     * Runs a batch from the command line.
+     *
+     * @param args options followed by an input file, or "-" or nothing for standard input
+     */
+    public static void main(String[] args) throws IOException {
+        BatchRunner runner = new BatchRunner();
+        String file = "-";
+        long metricsPeriod = 0;
+        for (int k = 0; k < args.length; k++) {
+            switch (args[k]) {
+                case "--wires":
+                    runner.setNumberOfWires(Integer.parseInt(args[++k]));
+                    break;
+                case "--binary":
+                    runner.setBinary(true);
+                    break;
+                case "--threads":
+                    runner.setThreads(Integer.parseInt(args[++k]));
+                    break;
+                case "--sorting-only":
+                    runner.setSortingOnly(true);
+                    break;
+                case "--prune":
+                    runner.setPrune(true);
+                    break;
+                case "--metrics":
+                    metricsPeriod = Long.parseLong(args[++k]) * 1000;
+                    break;
+                default:
+                    if (args[k].startsWith("--") || k != args.length - 1) {
+                        System.err.println(USAGE);
+                        System.exit(2);
+                    }
+                    file = args[k];
+            }
+        }
+        if (!runner.binary && runner.numWires <= 0) {
+            System.err.println("--wires is required for networks in text form");
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (metricsPeriod > 0) {
+            Metrics.setEnabled(true);
+            Metrics.registerMBean();
+            Metrics.startPeriodicDump(metricsPeriod, System.err);
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false,
+                "UTF-8");
+        int errors;
+        try (InputStream in = file.equals("-")
+                ? System.in : Files.newInputStream(Paths.get(file))) {
+            errors = runner.run(in, out);
+        }
+        if (metricsPeriod > 0) {
+            Metrics.stopPeriodicDump();
+            System.err.println(Metrics.summary());
+        }
+        if (errors > 0) {
+            System.err.println(errors + " networks could not be evaluated");
+            System.exit(1);
+        }
+    }
+}
@@ -1,47 +1,99 @@
 package green;
 
-import hardware.BinarySequence;
+import hardware.IncrementalEvaluator;
+import hardware.Metrics;
 import hardware.Network;
+import hardware.SequenceSet;
 import hardware.Utilities;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
 import javax.swing.border.EtchedBorder;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
 import javax.swing.border.TitledBorder;
 
 /**
- * Displays a list of comparators appended to the Green filter and a list of unsorted outputs 
- * produced by the resulting comparison network.
+ * Displays a list of comparators appended to a prefix, such as the Green filter, and a list of
+ * unsorted outputs produced by the resulting comparison network.
  * 
  * @author Drue Coles
  */
 public class DataCenter extends JPanel {
 
     private final JTextArea addedComparisonsTextArea = new JTextArea(8, 30);
-    private final JTextArea unsortedOutputsTextArea = new JTextArea(8, 100);
+    private final OutputListModel unsortedOutputsModel = new OutputListModel();
+    private final JList<String> unsortedOutputsList = new JList<>(unsortedOutputsModel);
+    private final JLabel metricsLabel = new JLabel(" ");
     private final Font font = new Font(Font.MONOSPACED, Font.BOLD, 14);
     private final  TitledBorder tBorder;
     private final TitledBorder tBorder2;
     private final EtchedBorder eBorder;
     private final JScrollPane scrollPane1;
     private final JScrollPane scrollPane2;
+
+    // evaluates added comparators on the outputs of the prefix, resuming from checkpoints
+    private final IncrementalEvaluator evaluator;
+
+    // Evaluations run one at a time on a background thread, so the evaluator is never shared.
+    private final ExecutorService evaluationExecutor = Executors.newSingleThreadExecutor((r) -> {
+        Thread thread = new Thread(r, "Network evaluation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private EvaluationWorker pendingEvaluation; // accessed only on the event dispatch thread
+    private Evaluation displayed; // the evaluation on display
+    private final ArrayList<Runnable> updateListeners = new ArrayList<>();
+
+    // marks added comparators that never swap on the outputs of the prefix
+    private static final Highlighter.HighlightPainter REDUNDANT_PAINTER =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(110, 0, 0));
             
+    /**
+     * The result of evaluating the added comparators on the outputs of the prefix. An
+     * evaluation is immutable, so it can be kept and displayed again, e.g. by the edit history.
+     */
+    static class Evaluation {
+
+        final Network network; // must not be modified
+        final SequenceSet unsortedOutputs; // must not be modified
+        private final long[] swapCounts; // swaps of each comparator of the network
+        private final int[][] candidateCounts; // unsorted outputs after each next comparator
+
+        Evaluation(Network network, SequenceSet unsortedOutputs, long[] swapCounts,
+                int[][] candidateCounts) {
+            this.network = network;
+            this.unsortedOutputs = unsortedOutputs;
+            this.swapCounts = swapCounts;
+            this.candidateCounts = candidateCounts;
+        }
+    }
+
     /**
      * Creates scroll panes and borders for displaying added comparisons and unsorted outputs.
      * 
-     * @param set a set of binary sequences representing unsorted outputs
+     * @param set a set of packed binary sequences representing the unsorted outputs of the prefix
      */
-    public DataCenter(Set<BinarySequence> set) {
+    public DataCenter(SequenceSet set) {
+        evaluator = new IncrementalEvaluator(set);
         setLayout(new BorderLayout());
         initTextArea(addedComparisonsTextArea);
-        initTextArea(unsortedOutputsTextArea);
+        initList(unsortedOutputsList, set.getNumberOfWires());
         
         scrollPane1 = new JScrollPane(addedComparisonsTextArea);
-        scrollPane2 = new JScrollPane(unsortedOutputsTextArea);
+        scrollPane2 = new JScrollPane(unsortedOutputsList);
         scrollPane1.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         scrollPane2.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
                 
@@ -51,7 +103,7 @@ public class DataCenter extends JPanel {
         scrollPane1.setBackground(Color.DARK_GRAY);
         scrollPane1.setBorder(tBorder);        
         
-        tBorder2 = new TitledBorder(eBorder, "Unsorted Outputs: 151");
+        tBorder2 = new TitledBorder(eBorder, "Unsorted Outputs: " + set.size());
         tBorder2.setTitleColor(Color.CYAN);        
         scrollPane2.setBackground(Color.DARK_GRAY);
         scrollPane2.setBorder(tBorder2);
@@ -59,11 +111,17 @@ public class DataCenter extends JPanel {
         
         add(scrollPane1, BorderLayout.WEST);
         add(scrollPane2, BorderLayout.CENTER);
+        metricsLabel.setForeground(Color.CYAN);
+        metricsLabel.setVisible(Metrics.isEnabled());
+        add(metricsLabel, BorderLayout.SOUTH);
         setBorder(new EtchedBorder());
         
-        set.stream().forEach((seq) -> {
-            unsortedOutputsTextArea.append(seq.toString() + " ");
-        });
+        // The outputs of the prefix are listed at once, but previewing every next comparator on
+        // a wide prefix takes long, so the first evaluation still runs in the background. Until
+        // it is done, the evaluation on display has no candidate counts.
+        Network empty = new Network(set.getNumberOfWires());
+        show(new Evaluation(empty, set, new long[0], null));
+        setUnsortedOutputsTextArea(empty);
     }
     
     public void setComparisonsTextArea(Network n) {
@@ -72,14 +130,106 @@ public class DataCenter extends JPanel {
         scrollPane1.repaint();  
     }
     
+    /**
+     * Evaluates the added comparators in the background and then displays the resulting unsorted
+     * outputs. An evaluation still pending from an earlier edit is cancelled, and only the result
+     * for the latest network is displayed.
+     *
+     * @param n the comparators added to the prefix; must not be modified afterwards
+     */
     public void setUnsortedOutputsTextArea(Network n) {
-        Set<BinarySequence> set = n.getUnsortedOutputs(Utilities.getGreenFilter().operateOnAll());
-        unsortedOutputsTextArea.setText("");
-        set.stream().forEach((seq) -> {
-            unsortedOutputsTextArea.append(seq.toString() + " ");
-        });
-        tBorder2.setTitle("Unsorted Outputs: " + set.size());
-        scrollPane2.repaint();  
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(false);
+        }
+        pendingEvaluation = new EvaluationWorker(n);
+        evaluationExecutor.execute(pendingEvaluation);
+    }
+    
+    /**
+     * Cancels any evaluation still pending and stops the thread on which evaluations run. Called
+     * when this data center is removed from display; it must not be used afterwards.
+     */
+    public void dispose() {
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(false);
+            pendingEvaluation = null;
+        }
+        evaluationExecutor.shutdownNow();
+    }
+
+    /**
+     * Displays an evaluation computed earlier, cancelling any evaluation still pending. The list
+     * of added comparisons should already show the network of the evaluation. Evaluations do not
+     * keep their outputs in order, so the outputs are sorted again for the list.
+     *
+     * @param evaluation the evaluation
+     */
+    void show(Evaluation evaluation) {
+        show(evaluation, evaluation.unsortedOutputs.toArray());
+    }
+
+    // Displays an evaluation whose outputs have been sorted for the list.
+    private void show(Evaluation evaluation, long[] sortedOutputs) {
+        if (pendingEvaluation != null) {
+            pendingEvaluation.cancel(false);
+            pendingEvaluation = null;
+        }
+        displayed = evaluation;
+        unsortedOutputsModel.setOutputs(sortedOutputs,
+                evaluation.unsortedOutputs.getNumberOfWires());
+        tBorder2.setTitle("Unsorted Outputs: " + evaluation.unsortedOutputs.size());
+        scrollPane2.repaint();
+        showRedundantComparators();
+        updateListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * @return the evaluation on display, or null while the first evaluation is pending
+     */
+    Evaluation getDisplayedEvaluation() {
+        return displayed.candidateCounts == null ? null : displayed;
+    }
+
+    /**
+     * @return the network whose unsorted outputs are on display
+     */
+    public Network getDisplayedNetwork() {
+        return displayed.network;
+    }
+
+    /**
+     * Returns, for each comparator of the displayed network, the number of distinct unsorted
+     * sequences on which it swaps, as counted by {@link IncrementalEvaluator}. A comparator with
+     * no swaps is redundant.
+     */
+    public long[] getSwapCounts() {
+        return displayed.swapCounts;
+    }
+
+    /**
+     * Returns, for every comparator (i, j) with i less than j that could be appended to the
+     * displayed network, the number of unsorted outputs that would remain, in entry [i][j], or
+     * null while the first evaluation is pending.
+     */
+    public int[][] getCandidateCounts() {
+        return displayed.candidateCounts;
+    }
+
+    /**
+     * Adds an action to run on the event dispatch thread whenever the display is updated with the
+     * results of an evaluation.
+     *
+     * @param listener the action
+     */
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * @return the unsorted outputs on display, which must not be modified
+     */
+    public SequenceSet getUnsortedOutputs() {
+        return displayed.unsortedOutputs;
     }
     
     private void initTextArea(JTextArea t) {
@@ -90,4 +240,120 @@ public class DataCenter extends JPanel {
             t.setLineWrap(true);
             t.setWrapStyleWord(true);            
     }  
+
+    // Lays out outputs in rows that wrap at the width of the viewport, like a text area. Fixed
+    // cell sizes let the list render only the visible cells without measuring the others.
+    private void initList(JList<String> list, int n) {
+        list.setBackground(Color.BLACK);
+        list.setForeground(Color.YELLOW);
+        list.setFont(font);
+        list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        list.setVisibleRowCount(-1);
+        char[] prototype = new char[n + 2];
+        Arrays.fill(prototype, '0');
+        prototype[n + 1] = ' ';
+        list.setPrototypeCellValue(new String(prototype));
+        list.setFocusable(false);
+    }
+
+    // Highlights the comparators that never swap in the list of added comparisons, provided that
+    // the list still shows the displayed network.
+    private void showRedundantComparators() {
+        Highlighter highlighter = addedComparisonsTextArea.getHighlighter();
+        highlighter.removeAllHighlights();
+        String text = addedComparisonsTextArea.getText();
+        if (!text.equals(displayed.network.toString())) {
+            return;
+        }
+        long[] swapCounts = displayed.swapCounts;
+        int redundant = 0;
+        int offset = 0;
+        for (int k = 0; k < swapCounts.length; k++) {
+            int end = text.indexOf(' ', offset);
+            end = end < 0 ? text.length() : end;
+            if (swapCounts[k] == 0) {
+                redundant++;
+                try {
+                    highlighter.addHighlight(offset, end, REDUNDANT_PAINTER);
+                } catch (BadLocationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            offset = end + 1;
+        }
+        tBorder.setTitle("Added Comparisons: " + swapCounts.length
+                + (redundant > 0 ? " (" + redundant + " redundant)" : ""));
+        scrollPane1.repaint();
+    }
+
+    /**
+     * Shows or hides the metrics of the last evaluation, depending on whether metrics are enabled.
+     * While enabled, they are updated after each evaluation.
+     */
+    void showMetrics() {
+        metricsLabel.setVisible(Metrics.isEnabled());
+        revalidate();
+        if (!Metrics.isEnabled() || pendingEvaluation == null) {
+            return;
+        }
+        EvaluationWorker last = pendingEvaluation;
+        double millis = last.elapsedNanos / 1e6;
+        double rate = last.elapsedNanos == 0 ? 0 : last.comparisons * 1e3 / last.elapsedNanos;
+        Metrics.Histogram latency = Metrics.get(Metrics.Timer.GUI_RECALCULATION);
+        metricsLabel.setText(String.format(
+                "Last evaluation: %.2f ms, %.1f M comparisons/s. Update latency: mean %.1f ms, "
+                + "p99 <= %.1f ms over %d updates.", millis, rate, latency.getMeanMillis(),
+                latency.getPercentileMillis(0.99), latency.getCount()));
+    }
+
+    /**
+     * Evaluates a network, sorts its unsorted outputs and previews every next comparator off the
+     * event dispatch thread. The result is published only if no later evaluation has been
+     * requested in the meantime.
+     */
+    private class EvaluationWorker extends SwingWorker<Evaluation, Void> {
+
+        private final Network network;
+        private final long requested = Metrics.start(); // when the edit was made
+        private long[] sortedOutputs; // the outputs of the result in increasing order
+        private long elapsedNanos;
+        private long comparisons;
+
+        EvaluationWorker(Network network) {
+            this.network = network;
+        }
+
+        @Override
+        protected Evaluation doInBackground() {
+            // Only the added comparators past the first one that changed are evaluated, on the
+            // outputs of the prefix, and their swaps are counted in the same pass.
+            long start = System.nanoTime();
+            long before = Metrics.get(Metrics.Counter.COMPARATOR_APPLICATIONS);
+            long[] swapCounts = new long[network.size()];
+            SequenceSet set = evaluator.getUnsortedOutputs(network, swapCounts);
+            elapsedNanos = System.nanoTime() - start;
+            comparisons = Metrics.get(Metrics.Counter.COMPARATOR_APPLICATIONS) - before;
+            if (isCancelled()) {
+                return null;
+            }
+            sortedOutputs = set.toArray();
+            return new Evaluation(network, set, swapCounts,
+                    Utilities.unsortedAfterEachComparator(set));
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || pendingEvaluation != this) {
+                return;
+            }
+            try {
+                Evaluation evaluation = get();
+                Metrics.record(Metrics.Timer.GUI_RECALCULATION, requested);
+                showMetrics();
+                show(evaluation, sortedOutputs);
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new IllegalStateException("Evaluation of added comparators failed", ex);
+            }
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package green;
+
+/**
+ * Encapsulates information needed to draw a comparator.
+ *
+ * @author Drue Coles
+ */
+class DrawingInfo implements Comparable<DrawingInfo> {
+
+    int x; // x-coordinate of comparator
+    int top; // index of top wire
+    int bot; // index of bottom wire
+
+    public DrawingInfo(int x, int top, int bot) {
+        this.x = x;
+        this.top = Math.min(top, bot);
+        this.bot = Math.max(top, bot);
+    }
+
+    /**
+     * Returns true if another comparator is in the same position as this one.
+     */
+    boolean sameAs(DrawingInfo t) {
+        return x == t.x && top == t.top && bot == t.bot;
+    }
+
+    /**
+     * Used to sort comparators by x-coordinate. Since comparators are drawn vertically, the top and
+     * bottom wires have the same x-coordinate.
+     */
+    @Override
+    public int compareTo(DrawingInfo t) {
+        if (x < t.x) {
+            return -1;
+        }
+        if (x > t.x) {
+            return 1;
+        }
+        return 0;
+    }
+}
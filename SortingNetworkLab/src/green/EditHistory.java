@@ -0,0 +1,145 @@
+package green;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The undo and redo history of the comparators added to the Green filter. An entry holds only
+ * the comparators that one edit removed and added, not the whole network, together with
+ * references to the evaluations of the networks before and after the edit once they are known.
+ * Consecutive entries share the evaluation of the network between them, and an evaluation is
+ * never copied, so stepping through recent edits redisplays outputs already computed.
+ *
+ * An evaluation holds a whole set of outputs, so only the entries within a few steps of the
+ * network on display keep theirs, and memory grows with the edits rather than with the number of
+ * edits times the size of the set. Stepping further back re-evaluates the network, which resumes
+ * from the checkpoints of the evaluator.
+ *
+ * @author Drue Coles
+ */
+class EditHistory {
+
+    // oldest edits are forgotten beyond this many
+    private static final int MAX_EDITS = 200;
+
+    // entries on either side of the network on display that keep their evaluations
+    private static final int EVALUATED_EDITS = 8;
+
+    private final ArrayDeque<Edit> undoStack = new ArrayDeque<>();
+    private final ArrayDeque<Edit> redoStack = new ArrayDeque<>();
+
+    /**
+     * The comparators removed and added by one edit. A move removes a comparator and adds it in
+     * its new position. The comparators are private copies, so later changes to the comparators
+     * on display do not alter the history.
+     */
+    static class Edit {
+
+        final List<DrawingInfo> removed;
+        final List<DrawingInfo> added;
+        DataCenter.Evaluation before; // null until known
+        DataCenter.Evaluation after; // null until known
+
+        Edit(List<DrawingInfo> removed, List<DrawingInfo> added) {
+            this.removed = copy(removed);
+            this.added = copy(added);
+        }
+
+        private static List<DrawingInfo> copy(List<DrawingInfo> list) {
+            ArrayList<DrawingInfo> copy = new ArrayList<>(list.size());
+            list.forEach((t) -> {
+                copy.add(new DrawingInfo(t.x, t.top, t.bot));
+            });
+            return copy;
+        }
+    }
+
+    /**
+     * Records an edit that has just been made, which discards the edits that were undone.
+     *
+     * @param edit the edit
+     * @param before the evaluation of the network before the edit, or null if not known
+     */
+    void record(Edit edit, DataCenter.Evaluation before) {
+        edit.before = before;
+        if (!undoStack.isEmpty() && undoStack.peek().after == null) {
+            undoStack.peek().after = before;
+        }
+        undoStack.push(edit);
+        redoStack.clear();
+        if (undoStack.size() > MAX_EDITS) {
+            undoStack.removeLast();
+        }
+        forgetDistantEvaluations();
+    }
+
+    /**
+     * Stores the evaluation of the network on display with the edits next to it.
+     *
+     * @param current the evaluation of the network produced by the edits undone so far
+     */
+    void evaluated(DataCenter.Evaluation current) {
+        if (!undoStack.isEmpty()) {
+            undoStack.peek().after = current;
+        }
+        if (!redoStack.isEmpty()) {
+            redoStack.peek().before = current;
+        }
+    }
+
+    /**
+     * @return the last edit, now moved to the redo stack, or null if there is none to undo
+     */
+    Edit undo() {
+        Edit edit = undoStack.poll();
+        if (edit != null) {
+            redoStack.push(edit);
+            forgetDistantEvaluations();
+        }
+        return edit;
+    }
+
+    /**
+     * @return the last edit undone, now moved back to the undo stack, or null if there is none
+     */
+    Edit redo() {
+        Edit edit = redoStack.poll();
+        if (edit != null) {
+            undoStack.push(edit);
+            forgetDistantEvaluations();
+        }
+        return edit;
+    }
+
+    // Drops the evaluations of the entries more than EVALUATED_EDITS steps from the network on
+    // display, so that they can be collected.
+    private void forgetDistantEvaluations() {
+        for (ArrayDeque<Edit> stack : Arrays.asList(undoStack, redoStack)) {
+            int steps = 0;
+            for (Edit edit : stack) {
+                if (++steps > EVALUATED_EDITS) {
+                    edit.before = null;
+                    edit.after = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies an action to every comparator in the history, e.g. to shift the comparators along
+     * with those on display.
+     */
+    void forEachComparator(Consumer<DrawingInfo> action) {
+        for (Edit edit : undoStack) {
+            edit.removed.forEach(action);
+            edit.added.forEach(action);
+        }
+        for (Edit edit : redoStack) {
+            edit.removed.forEach(action);
+            edit.added.forEach(action);
+        }
+    }
+}
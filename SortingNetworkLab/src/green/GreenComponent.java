@@ -1,5 +1,6 @@
 package green;
 
+import hardware.BinaryFormat;
 import hardware.Network;
 import hardware.Utilities;
 import java.awt.BasicStroke;
@@ -13,17 +14,20 @@ import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Ellipse2D;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import javax.swing.JComponent;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.border.EtchedBorder;
 
 /**
- * Presents a 16-wire comparison network with the first 32-comparisons of Green's network fixed in
- * place. The user can append new comparators and observe their effect on the set of unsorted
- * outputs.
+ * Presents a comparison network with a fixed prefix, such as the first 32 comparisons of Green's
+ * network on 16 wires. The user can append new comparators and observe their effect on the set of
+ * unsorted outputs.
  *
  * @author Drue Coles
  */
@@ -37,25 +41,34 @@ public class GreenComponent extends JComponent {
     private static final Color WIRE_HIGHLIGHT_COLOR = Color.WHITE;
 
     // comparator colors
-    private static final Color FIXED_COMP_COLOR = Color.GREEN; // comparator in Green's network
+    private static final Color FIXED_COMP_COLOR = Color.GREEN; // comparator in the prefix
     private static final Color NEW_COMP_COLOR = Color.CYAN; // comparator added by user
+    private static final Color REDUNDANT_COMP_COLOR = Color.GRAY; // added but never swaps
     private static final Color ENDPOINT_COLOR = Color.CYAN; // circular endpoint of comparator    
+    private static final int PREVIEW_ALPHA = 90; // opacity of the heat map over the wires
 
     // integer constants
-    private static final int NUM_WIRES = 16;
     private static final int WIRE_THICKNESS = 5;
     private static final int PADDING = 20; // space between wires and vertical borders of container
     private static final int ENDPOINT_DIAMETER = 10; // circular endpoint of comparator
     private static final int H_SPACE = 30; // horizontal space between sets
+    private static final int PREFIX_WIDTH = 600; // at most, unless columns would be too close
+    private static final int MIN_PREFIX_SPACE = 8; // horizontal space between columns of a prefix
+
+    private final int numWires;
+
+    // the fixed prefix, in columns of comparators that can be drawn at the same x-coordinate
+    private final List<int[][]> prefixColumns;
+    private final int prefixSpace; // horizontal space between columns of the prefix
 
     // subnetworks composed into a single network
-    private Network afterGreenNetwork = new Network(16);
+    private Network afterPrefixNetwork;
 
     // drawing values that depend on size of container
     private int vSpaceBetweenWires;
 
-    // True if the first 32 comparators of Green's network are visible.
-    private boolean green32Visible = true;
+    // True if the comparators of the prefix are visible.
+    private boolean prefixVisible = true;
 
     // updated via mouse clicks
     private int xCoordOfComparatorToAdd;
@@ -66,18 +79,36 @@ public class GreenComponent extends JComponent {
     private int clickCount = 0;
 
     private DrawingInfo draggingComparator = null;
+    private DrawingInfo draggedFrom = null; // position of the dragged comparator when pressed
     private int yAbove = -1; // distance from click point to top of dragged comparator
     private int yBelow = -1; // distance from click point to bot of dragged comparator
     private int dragY = -1;  // current y-coordinate of cursor during drag
 
     private final DataCenter dataCenter;
+    private final EditHistory history = new EditHistory();
+    private final JFileChooser fileChooser = new JFileChooser();
 
     /**
      * Creates a new Green Component and stores a reference to a Data Center where statistics about
      * the subnetwork added by the user are displayed.
+     *
+     * @param dataCenter displays the outputs of the prefix followed by the added comparators
+     * @param prefix the fixed prefix, whose outputs the data center displays initially
      */
-    public GreenComponent(DataCenter dataCenter) {
+    public GreenComponent(DataCenter dataCenter, Network prefix) {
         this.dataCenter = dataCenter;
+        numWires = prefix.getNumberOfWires();
+        prefixColumns = toColumns(prefix);
+        prefixSpace = Math.min(H_SPACE,
+                Math.max(MIN_PREFIX_SPACE, PREFIX_WIDTH / Math.max(1, prefixColumns.size())));
+        afterPrefixNetwork = new Network(numWires);
+        dataCenter.addUpdateListener(() -> {
+            DataCenter.Evaluation evaluation = dataCenter.getDisplayedEvaluation();
+            if (evaluation.network.toString().equals(afterPrefixNetwork.toString())) {
+                history.evaluated(evaluation);
+            }
+            repaint();
+        });
         setBorder(new EtchedBorder());
 
         MouseAdapter listener = new MouseAdapter() {
@@ -113,11 +144,11 @@ public class GreenComponent extends JComponent {
                     int top = wireIndexOfComparatorToAdd;
                     int bot = toWireIndex(pixelY);
 
-                    if (isAfterGreen(pixelX) && top != bot) {
-                        addedComparators.add(new DrawingInfo(pixelX, top, bot));
-                        afterGreenNetwork = toNetwork(addedComparators);
-                        dataCenter.setComparisonsTextArea(afterGreenNetwork);
-                        dataCenter.setUnsortedOutputsTextArea(afterGreenNetwork);
+                    if (isAfterPrefix(pixelX) && top != bot) {
+                        DrawingInfo added = new DrawingInfo(pixelX, top, bot);
+                        record(Collections.emptyList(), Collections.singletonList(added));
+                        addedComparators.add(added);
+                        recalculate();
                     }
                     clickCount = 0;
                     indexOfWireToHighlight = -1;
@@ -138,6 +169,8 @@ public class GreenComponent extends JComponent {
                 draggingComparator = getDrawingInfo(x, y);
                 if (draggingComparator != null) {
                     addedComparators.remove(draggingComparator);
+                    draggedFrom = new DrawingInfo(draggingComparator.x, draggingComparator.top,
+                            draggingComparator.bot);
                     // calculate distance of y-coordinate of click from top and bottom endpoints.
                     yAbove = y - toPixelPositionY(draggingComparator.top);
                     yBelow = toPixelPositionY(draggingComparator.bot) - y;
@@ -157,9 +190,17 @@ public class GreenComponent extends JComponent {
                     if (onWire(pixelX, pixelY + yBelow)) {
                         int a = toWireIndex(pixelY - yAbove);
                         int b = toWireIndex(pixelY + yBelow);
-                        addedComparators.add(new DrawingInfo(pixelX, a, b));
+                        DrawingInfo moved = new DrawingInfo(pixelX, a, b);
+                        if (!moved.sameAs(draggedFrom)) {
+                            record(Collections.singletonList(draggedFrom),
+                                    Collections.singletonList(moved));
+                        }
+                        addedComparators.add(moved);
                         Collections.sort(addedComparators);
+                    } else {
+                        record(Collections.singletonList(draggedFrom), Collections.emptyList());
                     }
+                    draggedFrom = null;
                     recalculate();
                 }
                 setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
@@ -181,30 +222,15 @@ public class GreenComponent extends JComponent {
                     repaint();
                 }
             }
-
-            // Gets a network corresponding to the added comparators
-            private Network toNetwork(ArrayList<DrawingInfo> list) {
-                DrawingInfo[] t = new DrawingInfo[list.size()];
-                for (int i = 0; i < t.length; i++) {
-                    t[i] = list.get(i);
-                }
-                Arrays.sort(t);
-                Network n = new Network(16);
-                for (DrawingInfo triple : t) {
-                    n.addComparator(triple.top, triple.bot);
-                }
-                return n;
-            }
-
         };
         addMouseListener(listener);
         addMouseMotionListener(listener);
     }
 
     /**
-     * Draws the subnetwork of comparators added by the user to follow the first 32 comparators of
-     * Green's sorting network. By default, Green's subnetwork is shown before the comparators added
-     * by the user, but the user can select an option to show only the added comparators.
+     * Draws the subnetwork of comparators added by the user to follow the prefix. By default, the
+     * prefix is shown before the comparators added by the user, but the user can select an option
+     * to show only the added comparators.
      *
      * @param g the graphics context
      */
@@ -226,6 +252,7 @@ public class GreenComponent extends JComponent {
         // The mouse was clicked on a wire and the cursor is now moving, so highlight the wire as
         // the cursor moves across it. 
         if (clickCount == 1 && draggingComparator == null) {
+            drawPreview(g2, w);
             drawPoint(g2, xCoordOfComparatorToAdd, wireIndexOfComparatorToAdd, vSpaceBetweenWires,
                     ENDPOINT_COLOR);
         }
@@ -239,8 +266,10 @@ public class GreenComponent extends JComponent {
      * Remove all added comparators.
      */
     public void reset() {
+        if (!addedComparators.isEmpty()) {
+            record(addedComparators, Collections.emptyList());
+        }
         addedComparators.clear();
-        afterGreenNetwork = new Network(16);
         recalculate();
     }
 
@@ -248,34 +277,105 @@ public class GreenComponent extends JComponent {
      * Modifies data center after a comparator has been added or removed.
      */
     public void recalculate() {
-        afterGreenNetwork = new Network(16);
-        addedComparators.stream().forEach((t) -> {
-            afterGreenNetwork.addComparator(t.top, t.bot);
+        recalculate(null);
+    }
+
+    /**
+     * Undoes the last edit of the added comparators. The unsorted outputs from before the edit
+     * are displayed at once if they were evaluated.
+     */
+    public void undo() {
+        EditHistory.Edit edit = draggingComparator == null ? history.undo() : null;
+        if (edit != null) {
+            apply(edit.added, edit.removed);
+            recalculate(edit.before);
+        }
+    }
+
+    /**
+     * Redoes the last edit undone.
+     */
+    public void redo() {
+        EditHistory.Edit edit = draggingComparator == null ? history.redo() : null;
+        if (edit != null) {
+            apply(edit.removed, edit.added);
+            recalculate(edit.after);
+        }
+    }
+
+    // Records an edit of the added comparators before the network is recalculated.
+    private void record(List<DrawingInfo> removed, List<DrawingInfo> added) {
+        DataCenter.Evaluation before = dataCenter.getDisplayedEvaluation();
+        if (before != null && !before.network.toString().equals(afterPrefixNetwork.toString())) {
+            before = null; // still being evaluated
+        }
+        history.record(new EditHistory.Edit(removed, added), before);
+    }
+
+    // Replaces comparators of the history with copies of others.
+    private void apply(List<DrawingInfo> remove, List<DrawingInfo> add) {
+        remove.forEach((r) -> {
+            addedComparators.removeIf(r::sameAs);
         });
-        dataCenter.setComparisonsTextArea(afterGreenNetwork);
-        dataCenter.setUnsortedOutputsTextArea(afterGreenNetwork);
+        add.forEach((t) -> {
+            addedComparators.add(new DrawingInfo(t.x, t.top, t.bot));
+        });
+        Collections.sort(addedComparators);
+    }
+
+    /**
+     * Modifies data center after the added comparators have changed, displaying an earlier
+     * evaluation of the new network if one is given and evaluating the network otherwise.
+     */
+    private void recalculate(DataCenter.Evaluation evaluation) {
+        afterPrefixNetwork = toNetwork(addedComparators);
+        dataCenter.setComparisonsTextArea(afterPrefixNetwork);
+        if (evaluation != null
+                && evaluation.network.toString().equals(afterPrefixNetwork.toString())) {
+            dataCenter.show(evaluation);
+        } else {
+            dataCenter.setUnsortedOutputsTextArea(afterPrefixNetwork);
+        }
         dataCenter.repaint();
         repaint();
     }
 
+    // Gets a network corresponding to the added comparators
+    private Network toNetwork(ArrayList<DrawingInfo> list) {
+        DrawingInfo[] t = new DrawingInfo[list.size()];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = list.get(i);
+        }
+        Arrays.sort(t);
+        Network n = new Network(numWires);
+        for (DrawingInfo triple : t) {
+            n.addComparator(triple.top, triple.bot);
+        }
+        return n;
+    }
+
     /**
-     * Used to activate or deactivate display of the first 32 comparators of Green's network.
+     * Used to activate or deactivate display of the comparators of the prefix.
      */
-    public void setGreen32Visible(boolean isVisible) {
-        green32Visible = isVisible;
+    public void setPrefixVisible(boolean isVisible) {
+        prefixVisible = isVisible;
 
         // It now becomes visible, so we have to shift x-coordinates of added comparators to right.
-        if (green32Visible) {
-            addedComparators.stream().forEach((dInfo) -> {
-                dInfo.x += getLeftmostX();
-            });
+        int shift = 0;
+        if (prefixVisible) {
+            shift = getLeftmostX();
         } // It now becomes invisible, so we shift x-coordinates of added comparators to left.
         else if (addedComparators.size() > 0) {
-            int shiftLeft = addedComparators.get(0).x - PADDING - H_SPACE;
-            addedComparators.stream().forEach((dInfo) -> {
-                dInfo.x -= shiftLeft;
-            });
+            shift = PADDING + H_SPACE - addedComparators.get(0).x;
         }
+        int dx = shift;
+        addedComparators.stream().forEach((dInfo) -> {
+            dInfo.x += dx;
+        });
+        // Comparators in the edit history move with them.
+        history.forEachComparator((dInfo) -> {
+            dInfo.x += dx;
+        });
         repaint();
     }
 
@@ -289,20 +389,73 @@ public class GreenComponent extends JComponent {
     }
 
     /**
-     * Writes added comparators to disk.
+     * Writes added comparators to disk in the binary network format.
      */
     public void save() {
-        String msg = "Save added comparators feature not yet implemented.";
-        JOptionPane.showMessageDialog(this, msg);
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            BinaryFormat.writeNetwork(fileChooser.getSelectedFile().toPath(), afterPrefixNetwork);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save comparators: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes the unsorted outputs on display to disk in the binary sequence set format.
+     */
+    public void saveUnsortedOutputs() {
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            BinaryFormat.writeSequenceSet(fileChooser.getSelectedFile().toPath(),
+                    dataCenter.getUnsortedOutputs());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save outputs: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the added comparators with a network read from disk. The comparators are placed
+     * from left to right in the order in which they appear in the network.
+     */
+    public void load() {
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Network network;
+        try {
+            network = BinaryFormat.readNetwork(fileChooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Could not load comparators: " + ex.getMessage());
+            return;
+        }
+        if (network.getNumberOfWires() != numWires) {
+            JOptionPane.showMessageDialog(this, "The network has " + network.getNumberOfWires()
+                    + " wires; " + numWires + " are needed.");
+            return;
+        }
+        ArrayList<DrawingInfo> loaded = new ArrayList<>();
+        for (int i = 0; i < network.size(); i++) {
+            int x = getLeftmostX() + (i + 1) * H_SPACE / 2; // half spacing fits longer suffixes
+            loaded.add(new DrawingInfo(x, network.getComparison(i, 0),
+                    network.getComparison(i, 1)));
+        }
+        record(addedComparators, loaded);
+        addedComparators.clear();
+        addedComparators.addAll(loaded);
+        recalculate();
     }
 
     /**
      * Returns the smallest x-coordinate at which a comparator can be added, which depends on
-     * whether Green's subnetwork is visible.
+     * whether the prefix is visible.
      */
     private int getLeftmostX() {
-        if (green32Visible) {
-            return 15 * H_SPACE + 2 * PADDING;
+        if (prefixVisible) {
+            return prefixColumns.size() * prefixSpace + 2 * PADDING;
         } else {
             return PADDING;
         }
@@ -310,8 +463,8 @@ public class GreenComponent extends JComponent {
 
     private void drawWires(Graphics2D g2, int w, int h) {
         // draw the wires (thin horizontal rectangles with gradient paint)       
-        vSpaceBetweenWires = (h - 2 * PADDING) / NUM_WIRES + 2;
-        for (int i = 0; i < NUM_WIRES; i++) {
+        vSpaceBetweenWires = (h - 2 * PADDING - WIRE_THICKNESS) / Math.max(1, numWires - 1);
+        for (int i = 0; i < numWires; i++) {
             Rectangle wire = new Rectangle(PADDING, PADDING + i * vSpaceBetweenWires,
                     w - 2 * PADDING, WIRE_THICKNESS);
 
@@ -343,19 +496,19 @@ public class GreenComponent extends JComponent {
 
     /**
      * Returns true if a given pixel position lies on a wire and past the displayed fixed subnetwork
-     * (first 32 comparisons of Green's network) . In other words, indicates whether or not the user
+     * (the prefix). In other words, indicates whether or not the user
      * has clicked on a wire at a position where a new comparator can be added.
      */
     private boolean onWire(int x, int y) {
-        return (isAfterGreen(x)) && toWireIndex(y) >= 0;
+        return (isAfterPrefix(x)) && toWireIndex(y) >= 0;
     }
 
     /**
      * Returns true if the given x-coordinate lies strictly between the displayed fixed subnetwork
-     * (first 32 comparisons of Green's network) and the right end of the wires. In other words,
+     * (the prefix) and the right end of the wires. In other words,
      * this method tells if a new comparator can be added at the given x-coordinate.
      */
-    private boolean isAfterGreen(int x) {
+    private boolean isAfterPrefix(int x) {
         return (getLeftmostX() + 6) <= x && x < getWidth() - PADDING;
     }
 
@@ -364,15 +517,84 @@ public class GreenComponent extends JComponent {
      */
     private void drawComparators(Graphics2D g2) {
         g2.setStroke(new BasicStroke(2));
-        if (green32Visible) {
-            for (int i = 0; i < Utilities.numberOfGreenLayers(); i++) {
-                drawLayer(g2, 2 * PADDING + H_SPACE * i, Utilities.getGreenLayer(i),
+        if (prefixVisible) {
+            for (int i = 0; i < prefixColumns.size(); i++) {
+                drawLayer(g2, 2 * PADDING + prefixSpace * i, prefixColumns.get(i),
                         vSpaceBetweenWires);
             }
         }
-        addedComparators.stream().forEach((t) -> {
-            drawComparator(g2, t.x, t.top, t.bot, vSpaceBetweenWires, NEW_COMP_COLOR);
-        });
+        ArrayList<DrawingInfo> inOrder = new ArrayList<>(addedComparators);
+        Collections.sort(inOrder);
+        boolean[] redundant = findRedundant(inOrder);
+        for (int k = 0; k < inOrder.size(); k++) {
+            DrawingInfo t = inOrder.get(k);
+            drawComparator(g2, t.x, t.top, t.bot, vSpaceBetweenWires,
+                    redundant[k] ? REDUNDANT_COMP_COLOR : NEW_COMP_COLOR);
+        }
+    }
+
+    /**
+     * Shades each wire that would complete a comparator with the selected wire by the number of
+     * unsorted outputs that would remain, from green for the fewest to red for the most, and
+     * writes the number on the wire. Nothing is shown while the added comparators are still being
+     * evaluated.
+     */
+    private void drawPreview(Graphics2D g2, int w) {
+        if (!dataCenter.getDisplayedNetwork().toString().equals(afterPrefixNetwork.toString())) {
+            return;
+        }
+        int[][] counts = dataCenter.getCandidateCounts();
+        if (counts == null) {
+            return;
+        }
+        int selected = wireIndexOfComparatorToAdd;
+        int[] remaining = new int[numWires];
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int j = 0; j < numWires; j++) {
+            if (j != selected) {
+                remaining[j] = counts[Math.min(selected, j)][Math.max(selected, j)];
+                min = Math.min(min, remaining[j]);
+                max = Math.max(max, remaining[j]);
+            }
+        }
+        int x = xCoordOfComparatorToAdd;
+        for (int j = 0; j < numWires; j++) {
+            if (j == selected) {
+                continue;
+            }
+            float f = max == min ? 0 : (float) (remaining[j] - min) / (max - min);
+            Color heat = Color.getHSBColor((1 - f) / 3, 1, 1); // hue from green to red
+            int y = toPixelPositionY(j);
+            g2.setColor(new Color(heat.getRed(), heat.getGreen(), heat.getBlue(), PREVIEW_ALPHA));
+            g2.fill(new Rectangle(x, y - 3, w - PADDING - x, WIRE_THICKNESS + 6));
+            g2.setColor(heat);
+            g2.drawString(Integer.toString(remaining[j]), x + 12, y - 4);
+        }
+    }
+
+    /**
+     * Flags the added comparators that never swap on the outputs of the prefix, according to the
+     * last evaluation of the data center. Nothing is flagged while that evaluation is for a
+     * different set of comparators.
+     *
+     * @param inOrder the added comparators sorted by x-coordinate
+     */
+    private boolean[] findRedundant(ArrayList<DrawingInfo> inOrder) {
+        boolean[] redundant = new boolean[inOrder.size()];
+        Network network = dataCenter.getDisplayedNetwork();
+        long[] swaps = dataCenter.getSwapCounts();
+        if (network == null || network.size() != inOrder.size()) {
+            return redundant;
+        }
+        for (int k = 0; k < inOrder.size(); k++) {
+            if (network.getComparison(k, 0) != inOrder.get(k).top
+                    || network.getComparison(k, 1) != inOrder.get(k).bot) {
+                return new boolean[inOrder.size()];
+            }
+            redundant[k] = swaps[k] == 0;
+        }
+        return redundant;
     }
 
     /**
@@ -440,12 +662,44 @@ public class GreenComponent extends JComponent {
         }
     }
 
+    /**
+     * Partitions a network into columns of comparators that can be drawn at the same
+     * x-coordinate. Each comparator goes in the first column after every column with a
+     * comparator that touches or crosses one of the wires it spans, so the columns keep the order
+     * of comparators that share a wire and no two comparators in a column overlap. On the Green
+     * filter, this gives the 15 columns of {@link Utilities#getGreenLayer(int)}.
+     */
+    private static List<int[][]> toColumns(Network network) {
+        ArrayList<ArrayList<int[]>> columns = new ArrayList<>();
+        int[] nextColumn = new int[network.getNumberOfWires()]; // first free column of each wire
+        for (int k = 0; k < network.size(); k++) {
+            int top = network.getComparison(k, 0);
+            int bot = network.getComparison(k, 1);
+            int column = 0;
+            for (int i = top; i <= bot; i++) {
+                column = Math.max(column, nextColumn[i]);
+            }
+            for (int i = top; i <= bot; i++) {
+                nextColumn[i] = column + 1;
+            }
+            if (column == columns.size()) {
+                columns.add(new ArrayList<>());
+            }
+            columns.get(column).add(new int[] {top, bot});
+        }
+        ArrayList<int[][]> result = new ArrayList<>();
+        columns.forEach((column) -> {
+            result.add(column.toArray(new int[column.size()][]));
+        });
+        return result;
+    }
+
     /**
      * Returns the index of the wire with points having a given y-coordinate, or -1 if there is no
      * wire at the specified vertical position.
      */
     private int toWireIndex(int y) {
-        for (int index = 0; index < NUM_WIRES; index++) {
+        for (int index = 0; index < numWires; index++) {
             int a = PADDING + index * vSpaceBetweenWires;
             if (a - 2 <= y && y <= a + WIRE_THICKNESS + 2) {
                 return index;
@@ -462,35 +716,3 @@ public class GreenComponent extends JComponent {
 
     }
 }
-
-/**
- * Encapsulates information needed to draw a comparator.
- */
-class DrawingInfo implements Comparable {
-
-    int x; // x-coordinate of comparator
-    int top; // index of top wire
-    int bot; // index of bottom wire
-
-    public DrawingInfo(int x, int top, int bot) {
-        this.x = x;
-        this.top = Math.min(top, bot);
-        this.bot = Math.max(top, bot);
-    }
-
-    /**
-     * Used to sort comparators by x-coordinate. Since comparators are drawn vertically, the top and
-     * bottom wires have the same x-coordinate.
-     */
-    @Override
-    public int compareTo(Object o) {
-        DrawingInfo t = (DrawingInfo) o;
-        if (x < t.x) {
-            return -1;
-        }
-        if (x > t.x) {
-            return 1;
-        }
-        return 0;
-    }
-}
@@ -1,38 +1,113 @@
 package green;
 
-import hardware.BinarySequence;
+import hardware.Metrics;
+import hardware.Network;
+import hardware.PrefixLibrary;
+import hardware.SequenceSet;
 import hardware.Utilities;
 import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.event.ActionEvent;
-import java.util.Set;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.ExecutionException;
+import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JSeparator;
+import javax.swing.KeyStroke;
+import javax.swing.SwingWorker;
 
 /**
- * A frame that contains a Green Component and some menu options.
+ * A frame that contains a Green Component and some menu options. The prefix on display is the
+ * Green filter on 16 wires until another construction or number of wires is chosen.
  * 
  * @author Drue Coles
  */
 public class GreenFrame extends JFrame {
 
+    // range of the number of wires offered
+    private static final int MIN_WIRES = 4;
+    private static final int MAX_WIRES = 32;
+
+    private final String title;
     private GreenComponent greenComponent;
+    private DataCenter dataCenter;
     private boolean showGreen = true;
     private JMenuItem viewFilterMenuItem;
+    private PrefixLibrary.Construction construction = PrefixLibrary.Construction.GREEN;
+    private int numWires = 16;
     
     public GreenFrame(String title) {
         super(title);        
-        Set<BinarySequence> set = Utilities.getGreenFilter().operateOnAll();
-        DataCenter dataCenter = new DataCenter(set);
-        greenComponent = new GreenComponent(dataCenter);
+        this.title = title;
+        setJMenuBar(getMyMenuBar());
+        showPrefix(Utilities.getGreenFilter(), Utilities.getGreenFilterOutputs());
+    }
+
+    /**
+     * Replaces the prefix on display, and the comparators added to it, with the default prefix of
+     * a construction from the library. The outputs of the prefix are computed in the background by
+     * the fastest engine for its width.
+     *
+     * @param construction the construction
+     * @param n the number of wires, from 4 to 32
+     */
+    public void setPrefix(PrefixLibrary.Construction construction, int n) {
+        this.construction = construction;
+        numWires = n;
+        Network prefix = PrefixLibrary.getPrefix(construction, n);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<SequenceSet, Void>() {
+            @Override
+            protected SequenceSet doInBackground() {
+                return Utilities.getCachedOutputs(prefix);
+            }
+
+            @Override
+            protected void done() {
+                // A later choice replaces this one.
+                if (GreenFrame.this.construction != construction || numWires != n) {
+                    return;
+                }
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    showPrefix(prefix, get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(GreenFrame.this,
+                            "Could not evaluate the prefix: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showPrefix(Network prefix, SequenceSet outputs) {
+        if (greenComponent != null) {
+            dataCenter.dispose();
+            remove(greenComponent);
+            remove(dataCenter);
+        }
+        dataCenter = new DataCenter(outputs);
+        greenComponent = new GreenComponent(dataCenter, prefix);
         add(greenComponent, BorderLayout.CENTER);        
         add(dataCenter, BorderLayout.SOUTH);
-        setJMenuBar(getMyMenuBar());
+        showGreen = true;
+        viewFilterMenuItem.setText("Hide prefix");
+        setTitle(title + ": " + construction + ", " + numWires + " wires");
+        revalidate();
+        repaint();
     }
     
     public static void main(String[] args) {
+        // Metrics stay disabled unless requested by system property or from the View menu.
+        if (Metrics.isEnabled()) {
+            Metrics.registerMBean();
+        }
         GreenFrame frame = new GreenFrame("Green Lab");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(1000, 700); 
@@ -46,8 +121,25 @@ public class GreenFrame extends JFrame {
     private JMenuBar getMyMenuBar() {
         JMenuBar mBar = new JMenuBar();
 
+        JMenu editMenu = new JMenu("Edit");
+        JMenuItem undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        editMenu.add(undoItem);
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        editMenu.add(redoItem);
+        mBar.add(editMenu);
+
+        undoItem.addActionListener((ActionEvent e) -> {
+            greenComponent.undo();
+        });
+
+        redoItem.addActionListener((ActionEvent e) -> {
+            greenComponent.redo();
+        });
+
         JMenu viewMenu = new JMenu("View");
-        viewFilterMenuItem = new JMenuItem("Hide Green subnetwork");
+        viewFilterMenuItem = new JMenuItem("Hide prefix");
         mBar.add(viewMenu);
         viewMenu.add(viewFilterMenuItem);
         
@@ -57,11 +149,11 @@ public class GreenFrame extends JFrame {
         viewFilterMenuItem.addActionListener((ActionEvent e) -> {
             showGreen = !showGreen;
             if (showGreen) {
-                viewFilterMenuItem.setText("Hide Green subnetwork");
+                viewFilterMenuItem.setText("Hide prefix");
             } else {
-                viewFilterMenuItem.setText("Show Green subnetwork");
+                viewFilterMenuItem.setText("Show prefix");
             }
-            greenComponent.setGreen32Visible(showGreen);
+            greenComponent.setPrefixVisible(showGreen);
             greenComponent.repaint();            
         });
         
@@ -69,6 +161,19 @@ public class GreenFrame extends JFrame {
             greenComponent.horizontalAutoSpacing();
         });
         
+        JCheckBoxMenuItem metricsItem = new JCheckBoxMenuItem("Evaluation metrics",
+                Metrics.isEnabled());
+        viewMenu.add(metricsItem);
+
+        // Evaluation throughput is shown in the data center and available through JMX.
+        metricsItem.addActionListener((ActionEvent e) -> {
+            Metrics.setEnabled(metricsItem.isSelected());
+            if (metricsItem.isSelected()) {
+                Metrics.registerMBean();
+            }
+            dataCenter.showMetrics();
+        });
+
         viewMenu.add(new JSeparator());
         
         JMenuItem resetItem = new JMenuItem("Remove all added comparators");
@@ -77,6 +182,33 @@ public class GreenFrame extends JFrame {
         resetItem.addActionListener((ActionEvent e) -> {
             greenComponent.reset();
         });
+
+        JMenu prefixMenu = new JMenu("Prefix");
+        ButtonGroup constructions = new ButtonGroup();
+        for (PrefixLibrary.Construction c : PrefixLibrary.Construction.values()) {
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(c.toString(), c == construction);
+            constructions.add(item);
+            prefixMenu.add(item);
+            item.addActionListener((ActionEvent e) -> {
+                setPrefix(c, numWires);
+            });
+        }
+        prefixMenu.add(new JSeparator());
+        JMenuItem wiresItem = new JMenuItem("Number of wires...");
+        prefixMenu.add(wiresItem);
+        mBar.add(prefixMenu);
+
+        wiresItem.addActionListener((ActionEvent e) -> {
+            Integer[] choices = new Integer[MAX_WIRES - MIN_WIRES + 1];
+            for (int k = 0; k < choices.length; k++) {
+                choices[k] = MIN_WIRES + k;
+            }
+            Object n = JOptionPane.showInputDialog(this, "Number of wires:", "Prefix",
+                    JOptionPane.QUESTION_MESSAGE, null, choices, numWires);
+            if (n != null) {
+                setPrefix(construction, (Integer) n);
+            }
+        });
         
         JMenu saveMenu = new JMenu("Save");
         JMenuItem comparisonsMenuItem = new JMenuItem("Added comparators");
@@ -86,6 +218,22 @@ public class GreenFrame extends JFrame {
         comparisonsMenuItem.addActionListener((ActionEvent e) -> {
             greenComponent.save();            
         });
+        
+        JMenuItem outputsMenuItem = new JMenuItem("Unsorted outputs");
+        saveMenu.add(outputsMenuItem);
+        
+        outputsMenuItem.addActionListener((ActionEvent e) -> {
+            greenComponent.saveUnsortedOutputs();
+        });
+        
+        JMenu loadMenu = new JMenu("Load");
+        JMenuItem loadComparisonsMenuItem = new JMenuItem("Added comparators");
+        loadMenu.add(loadComparisonsMenuItem);
+        mBar.add(loadMenu);
+        
+        loadComparisonsMenuItem.addActionListener((ActionEvent e) -> {
+            greenComponent.load();
+        });
 
         return mBar;
     }
@@ -0,0 +1,54 @@
+package green;
+
+import hardware.PackedSequence;
+import javax.swing.AbstractListModel;
+
+/**
+ * A list model backed by an array of packed binary sequences. The string for a sequence is built
+ * only when the list asks for it, which a list with fixed cell sizes does only for the rows that
+ * are visible. Memory used for display is therefore proportional to the viewport rather than the
+ * number of sequences.
+ *
+ * @author Drue Coles
+ */
+class OutputListModel extends AbstractListModel<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private long[] outputs = new long[0];
+    private int numWires;
+
+    /**
+     * Replaces the sequences in this model. Listeners are told that the rows common to the old and
+     * new sequences changed and that the rest were removed or added, each event once the model
+     * holds the new sequences.
+     *
+     * @param outputs packed sequences in the order they are to be listed
+     * @param n the length of the sequences
+     */
+    void setOutputs(long[] outputs, int n) {
+        int oldSize = this.outputs.length;
+        int newSize = outputs.length;
+        this.outputs = outputs;
+        this.numWires = n;
+        int common = Math.min(oldSize, newSize);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (oldSize > newSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        } else if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return outputs.length;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return PackedSequence.toString(outputs[index], numWires);
+    }
+}
@@ -0,0 +1,358 @@
+package hardware;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A compact, versioned binary format for networks and sets of packed sequences. A file starts
+ * with a header of six bytes: the magic number "SNBF", the format version and the kind of record
+ * that follows (networks or sequence sets). Integers are written as unsigned variable-length
+ * quantities of 7 bits per byte, least significant group first.
+ *
+ * A network record holds the number of wires, a flags byte, the number of comparators, the sizes
+ * of the layers if the layers flag is set, and then the comparators as pairs of wire indices,
+ * each index in just enough bits for the number of wires (4 bits for 16 wires), packed into
+ * bytes. With the layers flag the comparators are written in layer order, which is equivalent to
+ * the original order.
+ *
+ * A sequence set record holds the number of wires, an encoding byte and the number of sequences,
+ * followed either by the sequences in increasing order as differences from their predecessors,
+ * or, when it is smaller, by a bitset over all 2^n sequences.
+ *
+ * @author Drue Coles
+ */
+public final class BinaryFormat {
+
+    static final int MAGIC = 0x534E4246; // "SNBF"
+    static final int VERSION = 1;
+    static final int NETWORKS = 1;
+    static final int SEQUENCE_SETS = 2;
+
+    private static final int FLAG_LAYERS = 1;
+    private static final int DELTAS = 0;
+    private static final int BITSET = 1;
+    private static final int MAX_BITSET_WIRES = 30;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Writes a single network to a file with its comparators in their original order, so that
+     * reading the file back gives an identical network, e.g. for the GUI, which lays comparators
+     * out in the order they were added. A {@link NetworkWriter} can write the layers instead.
+     *
+     * @param path the file to write
+     * @param network the network
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeNetwork(Path path, Network network) throws IOException {
+        try (NetworkWriter writer = new NetworkWriter(Files.newOutputStream(path), false)) {
+            writer.write(network);
+        }
+    }
+
+    /**
+     * Reads the first network in a file of networks.
+     *
+     * @param path the file to read
+     * @return the network
+     * @throws IOException if the file cannot be read, is not a file of networks or is empty
+     */
+    public static Network readNetwork(Path path) throws IOException {
+        try (NetworkReader reader = new NetworkReader(Files.newInputStream(path))) {
+            Network network = reader.read();
+            if (network == null) {
+                throw new EOFException("No network in " + path);
+            }
+            return network;
+        }
+    }
+
+    /**
+     * Writes a set of sequences to a file.
+     *
+     * @param path the file to write
+     * @param set the sequences
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeSequenceSet(Path path, SequenceSet set) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            writeHeader(out, SEQUENCE_SETS);
+            writeSequenceSet(out, set);
+        }
+    }
+
+    /**
+     * Reads a set of sequences from a file.
+     *
+     * @param path the file to read
+     * @return the sequences
+     * @throws IOException if the file cannot be read or is not a file of sequence sets
+     */
+    public static SequenceSet readSequenceSet(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            readHeader(in, SEQUENCE_SETS);
+            return readSequenceSet(in, in.readUnsignedByte());
+        }
+    }
+
+    static void writeHeader(DataOutputStream out, int kind) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+    }
+
+    static void readHeader(DataInputStream in, int kind) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a sorting network file: bad magic number.");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported file version " + version + ".");
+        }
+        if (in.readUnsignedByte() != kind) {
+            throw new IOException("File holds records of another kind.");
+        }
+    }
+
+    static void writeNetwork(DataOutputStream out, Network network, boolean withLayers)
+            throws IOException {
+        int n = network.getNumberOfWires();
+        int bits = bitsPerWire(n);
+        writeVarint(out, n);
+        out.writeByte(withLayers ? FLAG_LAYERS : 0);
+        writeVarint(out, network.size());
+        BitPacker packer = new BitPacker(out);
+        if (withLayers) {
+            List<int[][]> layers = network.getLayers();
+            writeVarint(out, layers.size());
+            for (int[][] layer : layers) {
+                writeVarint(out, layer.length);
+            }
+            for (int[][] layer : layers) {
+                for (int[] pair : layer) {
+                    packer.write(pair[0], bits);
+                    packer.write(pair[1], bits);
+                }
+            }
+        } else {
+            for (int c = 0; c < network.size(); c++) {
+                packer.write(network.getComparison(c, 0), bits);
+                packer.write(network.getComparison(c, 1), bits);
+            }
+        }
+        packer.flush();
+    }
+
+    // Reads a network record whose first byte has already been read.
+    static Network readNetwork(DataInputStream in, int firstByte) throws IOException {
+        int n = (int) readVarint(in, firstByte);
+        int flags = in.readUnsignedByte();
+        int size = (int) readVarint(in, in.readUnsignedByte());
+        int[] layerSizes = null;
+        if ((flags & FLAG_LAYERS) != 0) {
+            layerSizes = new int[(int) readVarint(in, in.readUnsignedByte())];
+            for (int k = 0; k < layerSizes.length; k++) {
+                layerSizes[k] = (int) readVarint(in, in.readUnsignedByte());
+            }
+        }
+        if (n < 1 || size < 0) {
+            throw new IOException("Corrupt network record.");
+        }
+        int bits = bitsPerWire(n);
+        BitUnpacker unpacker = new BitUnpacker(in);
+        Network network = new Network(n);
+        for (int c = 0; c < size; c++) {
+            int top = unpacker.read(bits);
+            int bottom = unpacker.read(bits);
+            if (top >= n || bottom >= n || top == bottom) {
+                throw new IOException("Corrupt network record: comparator " + top + "-" + bottom);
+            }
+            network.addComparator(top, bottom);
+        }
+        if (layerSizes != null) {
+            List<int[][]> layers = network.getLayers();
+            boolean consistent = layers.size() == layerSizes.length;
+            for (int k = 0; k < layerSizes.length && consistent; k++) {
+                consistent = layers.get(k).length == layerSizes[k];
+            }
+            if (!consistent) {
+                throw new IOException("Corrupt network record: layers do not match.");
+            }
+        }
+        return network;
+    }
+
+    static void writeSequenceSet(DataOutputStream out, SequenceSet set) throws IOException {
+        int n = set.getNumberOfWires();
+        long[] sorted = set.toArray();
+        writeVarint(out, n);
+        long deltaBytes = 0;
+        long previous = 0;
+        for (long seq : sorted) {
+            deltaBytes += varintLength(seq - previous);
+            previous = seq;
+        }
+        if (n <= MAX_BITSET_WIRES && (1L << n) / 8 < deltaBytes) {
+            out.writeByte(BITSET);
+            writeVarint(out, sorted.length);
+            byte[] bitset = new byte[(int) Math.max(1, (1L << n) / 8)];
+            for (long seq : sorted) {
+                bitset[(int) (seq >>> 3)] |= 1 << (seq & 7);
+            }
+            out.write(bitset);
+        } else {
+            out.writeByte(DELTAS);
+            writeVarint(out, sorted.length);
+            previous = 0;
+            for (long seq : sorted) {
+                writeVarint(out, seq - previous);
+                previous = seq;
+            }
+        }
+    }
+
+    // Reads a sequence set record whose first byte has already been read.
+    static SequenceSet readSequenceSet(DataInputStream in, int firstByte) throws IOException {
+        int n = (int) readVarint(in, firstByte);
+        if (n < 1 || n > PackedSequence.MAX_WIRES) {
+            throw new IOException("Corrupt sequence set record.");
+        }
+        int encoding = in.readUnsignedByte();
+        int size = (int) readVarint(in, in.readUnsignedByte());
+        SequenceSet set = new SequenceSet(n, Math.min(size, 1 << 20));
+        if (encoding == BITSET && n <= MAX_BITSET_WIRES) {
+            byte[] bitset = new byte[(int) Math.max(1, (1L << n) / 8)];
+            in.readFully(bitset);
+            for (int k = 0; k < bitset.length; k++) {
+                for (int b = 0; b < 8; b++) {
+                    if ((bitset[k] & (1 << b)) != 0) {
+                        set.add(8L * k + b);
+                    }
+                }
+            }
+        } else if (encoding == DELTAS) {
+            long seq = 0;
+            for (int k = 0; k < size; k++) {
+                seq += readVarint(in, in.readUnsignedByte());
+                set.add(seq);
+            }
+        } else {
+            throw new IOException("Unknown sequence set encoding " + encoding + ".");
+        }
+        if (set.size() != size) {
+            throw new IOException("Corrupt sequence set record.");
+        }
+        return set;
+    }
+
+    private static int bitsPerWire(int n) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+    }
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(InputStream in, int firstByte) throws IOException {
+        long value = firstByte & 0x7F;
+        int shift = 7;
+        int b = firstByte;
+        while ((b & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IOException("Malformed variable-length integer.");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static int varintLength(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        return Math.max(1, (bits + 6) / 7);
+    }
+
+    /**
+     * Writes values of a few bits each into a byte stream, most significant bit first.
+     */
+    private static final class BitPacker {
+
+        private final OutputStream out;
+        private int buffer;
+        private int count; // number of bits in the buffer
+
+        BitPacker(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(int value, int bits) throws IOException {
+            for (int b = bits - 1; b >= 0; b--) {
+                buffer = (buffer << 1) | ((value >>> b) & 1);
+                if (++count == 8) {
+                    out.write(buffer);
+                    buffer = 0;
+                    count = 0;
+                }
+            }
+        }
+
+        // Pads the last byte with zeros.
+        void flush() throws IOException {
+            if (count > 0) {
+                out.write(buffer << (8 - count));
+                buffer = 0;
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads values written by a bit packer.
+     */
+    private static final class BitUnpacker {
+
+        private final InputStream in;
+        private int buffer;
+        private int count; // number of unread bits in the buffer
+
+        BitUnpacker(InputStream in) {
+            this.in = in;
+        }
+
+        int read(int bits) throws IOException {
+            int value = 0;
+            for (int b = 0; b < bits; b++) {
+                if (count == 0) {
+                    buffer = in.read();
+                    if (buffer < 0) {
+                        throw new EOFException();
+                    }
+                    count = 8;
+                }
+                count--;
+                value = (value << 1) | ((buffer >>> count) & 1);
+            }
+            return value;
+        }
+    }
+}
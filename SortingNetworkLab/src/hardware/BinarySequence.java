@@ -30,6 +30,45 @@ public class BinarySequence implements Comparable {
         this.sequence = sequence.clone();
     }
 
+    /**
+     * Constructs a binary sequence from its packed form.
+     *
+     * @param packed the bits of the sequence as produced by {@link #toLong()}
+     * @param n the length of the sequence
+     * @see PackedSequence
+     */
+    public BinarySequence(long packed, int n) {
+        sequence = new byte[n];
+        for (int i = 0; i < n; i++) {
+            sequence[i] = (byte) PackedSequence.get(packed, n, i);
+        }
+    }
+
+    /**
+     * @return the length of this sequence
+     */
+    public int length() {
+        return sequence.length;
+    }
+
+    /**
+     * Returns this sequence packed into the bits of a long. The first bit of the sequence is the
+     * most significant of the packed bits.
+     *
+     * @throws IllegalStateException if the sequence is longer than 64 bits
+     * @see PackedSequence
+     */
+    public long toLong() {
+        if (sequence.length > PackedSequence.MAX_WIRES) {
+            throw new IllegalStateException("Sequence too long to pack: " + sequence.length);
+        }
+        long packed = 0;
+        for (byte b : sequence) {
+            packed = (packed << 1) | b;
+        }
+        return packed;
+    }
+
     /**
      * Operates on two bits of the sequence by swapping them if necessary so that the first bit is
      * smaller or equal to the second.
@@ -131,11 +170,11 @@ public class BinarySequence implements Comparable {
      */
     @Override
     public String toString() {
-        String str = "";
-        for (byte b : sequence) {
-            str += b;
+        char[] chars = new char[sequence.length];
+        for (int i = 0; i < sequence.length; i++) {
+            chars[i] = (char) ('0' + sequence[i]);
         }
-        return str;
+        return new String(chars);
     }
 
     /**
@@ -0,0 +1,279 @@
+package hardware;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Evaluates a comparison network on all binary inputs at once by transposing the input space.
+ * Each wire is represented by a 64-bit word whose bits (lanes) carry the values of that wire for
+ * 64 consecutive inputs, so that a comparator reduces to a single AND/OR pair on two words.
+ *
+ * Inputs are numbered as in {@link BinarySequence#increment()}: wire 0 holds the most significant
+ * bit and wire n-1 the least significant bit.
+ *
+ * @author Drue Coles
+ */
+final class BitSlicedEvaluator {
+
+    // LANE_PATTERNS[p] has a 1 in lane b exactly when bit p of b is 1.
+    private static final long[] LANE_PATTERNS = {
+        0xAAAAAAAAAAAAAAAAL,
+        0xCCCCCCCCCCCCCCCCL,
+        0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L,
+        0xFFFF0000FFFF0000L,
+        0xFFFFFFFF00000000L
+    };
+
+    private final int numWires;
+    private final CompiledNetwork network;
+
+    /**
+     * @param network the compiled network to evaluate
+     */
+    BitSlicedEvaluator(CompiledNetwork network) {
+        int numWires = network.getNumberOfWires();
+        if (numWires < 1 || numWires > 62) {
+            throw new IllegalArgumentException("Bit-sliced evaluation requires 1 to 62 wires.");
+        }
+        this.numWires = numWires;
+        this.network = network;
+    }
+
+    /**
+     * @return the number of wires of the network
+     */
+    int getNumberOfWires() {
+        return numWires;
+    }
+
+    /**
+     * @return the number of 64-input blocks needed to cover all 2^n inputs
+     */
+    long numberOfBlocks() {
+        return numWires <= 6 ? 1 : 1L << (numWires - 6);
+    }
+
+    /**
+     * Evaluates the network on all binary inputs.
+     *
+     * @return the set of all unsorted outputs
+     */
+    Set<BinarySequence> operateOnAll() {
+        return operateOnAllPacked().toBinarySequences();
+    }
+
+    /**
+     * Evaluates the network on all binary inputs.
+     *
+     * @return the set of all unsorted outputs in packed form
+     */
+    SequenceSet operateOnAllPacked() {
+        return operateOnBlocks(0, numberOfBlocks());
+    }
+
+    /**
+     * Evaluates the network on a range of blocks of inputs, using a wire buffer of its own.
+     *
+     * @param fromBlock the first block of the range (inclusive)
+     * @param toBlock the last block of the range (exclusive)
+     * @return the set of unsorted outputs in packed form
+     */
+    SequenceSet operateOnBlocks(long fromBlock, long toBlock) {
+        SequenceSet unsortedOutputs = new SequenceSet(numWires);
+        long[] insertions = new long[1];
+        forEachUnsorted(fromBlock, toBlock, (seq) -> {
+            unsortedOutputs.add(seq);
+            insertions[0]++;
+            return true;
+        });
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions[0]);
+        return unsortedOutputs;
+    }
+
+    /**
+     * Passes the unsorted output of every input in a range of blocks to an action, in the order
+     * of the inputs, until the action returns false. An output produced by several inputs is
+     * passed once for each of them.
+     *
+     * @param fromBlock the first block of the range (inclusive)
+     * @param toBlock the last block of the range (exclusive)
+     * @param action receives each unsorted output and returns false to stop
+     * @return true if every block was evaluated, false if the action stopped the sweep
+     */
+    boolean forEachUnsorted(long fromBlock, long toBlock, LongPredicate action) {
+        long[] wires = new long[numWires];
+        for (long block = fromBlock; block < toBlock; block++) {
+            long unsorted = operateOnBlock(block, wires);
+            while (unsorted != 0) {
+                int lane = Long.numberOfTrailingZeros(unsorted);
+                unsorted &= unsorted - 1;
+                if (!action.test(extract(wires, lane))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the inputs in a range of blocks whose outputs are not sorted, without collecting the
+     * outputs.
+     *
+     * @param fromBlock the first block of the range (inclusive)
+     * @param toBlock the last block of the range (exclusive)
+     */
+    long countUnsorted(long fromBlock, long toBlock) {
+        long[] wires = new long[numWires];
+        long count = 0;
+        for (long block = fromBlock; block < toBlock; block++) {
+            count += Long.bitCount(operateOnBlock(block, wires));
+        }
+        return count;
+    }
+
+    /**
+     * Finds the smallest input whose output is not sorted, stopping at the first block that has
+     * one.
+     *
+     * @return the packed input, or -1 if the network sorts every input
+     */
+    long firstUnsortedInput() {
+        long[] wires = new long[numWires];
+        for (long block = 0; block < numberOfBlocks(); block++) {
+            long unsorted = operateOnBlock(block, wires);
+            if (unsorted != 0) {
+                return (block << 6) | Long.numberOfTrailingZeros(unsorted);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Loads the inputs of a block into the wire words, runs every comparator and reports which
+     * lanes hold unsorted outputs.
+     *
+     * @param block index of the block; lane b of block k is input 64k + b
+     * @param wires buffer of one word per wire, overwritten with the outputs of the block
+     * @return a mask of the lanes whose outputs are not sorted
+     */
+    long operateOnBlock(long block, long[] wires) {
+        load(block, wires);
+        network.operateOn(wires);
+        return unsortedLanes(wires) & blockLanes();
+    }
+
+    /**
+     * Evaluates the network on all binary inputs and counts, in the same sweep, the inputs on
+     * which each comparator swaps its values.
+     *
+     * @param swaps one count per comparator in layer order, to which the counts are added
+     * @return the set of all unsorted outputs in packed form
+     */
+    SequenceSet operateOnAllCountingSwaps(long[] swaps) {
+        SequenceSet unsortedOutputs = new SequenceSet(numWires);
+        long[] wires = new long[numWires];
+        long lanes = blockLanes();
+        long insertions = 0;
+        for (long block = 0; block < numberOfBlocks(); block++) {
+            load(block, wires);
+            network.operateOn(wires, lanes, swaps);
+            insertions += addUnsorted(wires, unsortedLanes(wires) & lanes, unsortedOutputs);
+        }
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions);
+        return unsortedOutputs;
+    }
+
+    /**
+     * Counts, for each comparator, the inputs on which it swaps its values, over all binary
+     * inputs.
+     *
+     * @return one count per comparator, in layer order
+     */
+    long[] countSwaps() {
+        long[] swaps = new long[network.size()];
+        long[] wires = new long[numWires];
+        long lanes = blockLanes();
+        for (long block = 0; block < numberOfBlocks(); block++) {
+            load(block, wires);
+            network.operateOn(wires, lanes, swaps);
+        }
+        return swaps;
+    }
+
+    /**
+     * Counts, for each comparator, the inputs of a set on which it swaps its values. The inputs
+     * are transposed into wire words 64 at a time and evaluated in the same way as blocks.
+     *
+     * @param inputs a set of packed input sequences
+     * @return one count per comparator, in layer order
+     */
+    long[] countSwaps(SequenceSet inputs) {
+        long[] swaps = new long[network.size()];
+        long[] wires = new long[numWires];
+        int[] lane = new int[1];
+        inputs.forEach((seq) -> {
+            for (int i = 0; i < numWires; i++) {
+                wires[i] |= ((seq >>> (numWires - 1 - i)) & 1) << lane[0];
+            }
+            if (++lane[0] == 64) {
+                network.operateOn(wires, -1L, swaps);
+                Arrays.fill(wires, 0);
+                lane[0] = 0;
+            }
+        });
+        if (lane[0] > 0) {
+            network.operateOn(wires, (1L << lane[0]) - 1, swaps);
+        }
+        return swaps;
+    }
+
+    // Returns the lanes whose outputs are not sorted, i.e., in which some wire carries a 1 above a
+    // wire carrying a 0.
+    private long unsortedLanes(long[] wires) {
+        long unsorted = 0;
+        for (int i = 0; i < numWires - 1; i++) {
+            unsorted |= wires[i] & ~wires[i + 1];
+        }
+        return unsorted;
+    }
+
+    // Returns the lanes of a block that hold inputs, all 64 unless there are fewer than 6 wires.
+    private long blockLanes() {
+        return numWires < 6 ? (1L << (1 << numWires)) - 1 : -1L;
+    }
+
+    // Adds the outputs in some lanes to a set and returns their number.
+    private int addUnsorted(long[] wires, long unsorted, SequenceSet unsortedOutputs) {
+        int count = Long.bitCount(unsorted);
+        while (unsorted != 0) {
+            unsortedOutputs.add(extract(wires, Long.numberOfTrailingZeros(unsorted)));
+            unsorted &= unsorted - 1;
+        }
+        return count;
+    }
+
+    // Sets the wire words to the inputs of a block.
+    private void load(long block, long[] wires) {
+        for (int i = 0; i < numWires; i++) {
+            int p = numWires - 1 - i;
+            if (p < 6) {
+                wires[i] = LANE_PATTERNS[p];
+            } else {
+                wires[i] = ((block >>> (p - 6)) & 1) == 0 ? 0L : -1L;
+            }
+        }
+    }
+
+    /**
+     * Reads the packed output carried in one lane of the wire words.
+     */
+    long extract(long[] wires, int lane) {
+        long seq = 0;
+        for (int i = 0; i < numWires; i++) {
+            seq = (seq << 1) | ((wires[i] >>> lane) & 1);
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,441 @@
+package hardware;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Canonical forms of output sets under the symmetries of the search for sorting networks. Two
+ * networks are equivalent if a permutation of the wires, possibly combined with complementing
+ * every bit (which together with the reflection i -> n-1-i maps a network to its mirror image),
+ * maps the outputs of one onto the outputs of the other. Equivalent networks need extensions of
+ * the same length and depth to become sorting networks. Output sets are compared as complete
+ * sets, i.e., the unsorted outputs together with the n + 1 sorted sequences.
+ *
+ * A {@link Key} wraps a set for use in hash maps: its hash code is a fingerprint of invariants
+ * that is fast to compute, and the full canonical form is computed only when two keys have equal
+ * fingerprints.
+ *
+ * @author Drue Coles
+ */
+public final class CanonicalForm {
+
+    private CanonicalForm() {
+    }
+
+    /**
+     * An output set wrapped so that equivalent sets are equal.
+     */
+    public static final class Key {
+
+        private final SequenceSet set;
+        private final long fingerprint;
+        private volatile long[] canonical; // computed on the first equality test that needs it
+
+        private Key(SequenceSet set) {
+            this.set = set;
+            this.fingerprint = fingerprint(set);
+        }
+
+        /**
+         * @return the output set wrapped by this key
+         */
+        public SequenceSet getSet() {
+            return set;
+        }
+
+        /**
+         * @return the fingerprint of the wrapped set
+         */
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Returns true if the wrapped sets are equivalent.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            if (fingerprint != other.fingerprint || set.size() != other.set.size()
+                    || set.getNumberOfWires() != other.set.getNumberOfWires()) {
+                return false;
+            }
+            return set.equals(other.set) || Arrays.equals(canonical(), other.canonical());
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fingerprint);
+        }
+
+        private long[] canonical() {
+            long[] form = canonical;
+            if (form == null) {
+                form = canonicalize(set);
+                canonical = form;
+            }
+            return form;
+        }
+    }
+
+    /**
+     * @param set a set of unsorted outputs
+     * @return a key under which equivalent sets are equal
+     */
+    public static Key key(SequenceSet set) {
+        return new Key(set);
+    }
+
+    /**
+     * Computes a fingerprint of a set of unsorted outputs from invariants of its complete output
+     * set: the number of outputs of each weight and the multiset of per-wire counts of ones in
+     * each weight class. Equivalent sets have equal fingerprints.
+     *
+     * @param set a set of unsorted outputs
+     */
+    public static long fingerprint(SequenceSet set) {
+        long[] full = completeSet(set);
+        long plain = fingerprint(full, set.getNumberOfWires());
+        complement(full, set.getNumberOfWires());
+        return Math.min(plain, fingerprint(full, set.getNumberOfWires()));
+    }
+
+    /**
+     * Computes the canonical form of a set of unsorted outputs: the smallest, in lexicographic
+     * order of sorted arrays, of the images of its complete output set under all permutations of
+     * the wires with or without complement. Equivalent sets, and only those, have equal canonical
+     * forms.
+     *
+     * Wires are first partitioned by invariants and the partition is refined until it is stable;
+     * wires of the cells that remain are then individualized one at a time. Automorphisms found
+     * along the way prune branches that would only repeat labelings already seen, so even highly
+     * symmetric sets need few leaves.
+     *
+     * @param set a set of unsorted outputs
+     * @return the canonical form as a sorted array of packed sequences
+     */
+    public static long[] canonicalize(SequenceSet set) {
+        int n = set.getNumberOfWires();
+        long[] full = completeSet(set);
+        long[] best = new Labeling(full, n).canonical();
+        complement(full, n);
+        long[] other = new Labeling(full, n).canonical();
+        return compare(other, best) < 0 ? other : best;
+    }
+
+    // Returns the unsorted outputs together with the sorted sequences.
+    private static long[] completeSet(SequenceSet set) {
+        int n = set.getNumberOfWires();
+        long[] unsorted = set.toArray();
+        long[] full = Arrays.copyOf(unsorted, unsorted.length + n + 1);
+        for (int w = 0; w <= n; w++) {
+            full[unsorted.length + w] = PackedSequence.mask(w);
+        }
+        return full;
+    }
+
+    private static void complement(long[] seqs, int n) {
+        long mask = PackedSequence.mask(n);
+        for (int k = 0; k < seqs.length; k++) {
+            seqs[k] = ~seqs[k] & mask;
+        }
+    }
+
+    private static long fingerprint(long[] full, int n) {
+        int[][] ones = new int[n + 1][n];
+        int[] weightCounts = new int[n + 1];
+        for (long seq : full) {
+            int w = Long.bitCount(seq);
+            weightCounts[w]++;
+            for (int i = 0; i < n; i++) {
+                ones[w][i] += PackedSequence.get(seq, n, i);
+            }
+        }
+        long hash = 17;
+        for (int count : weightCounts) {
+            hash = mix(hash, count);
+        }
+        // per-wire signatures, sorted so that the order of the wires does not matter
+        long[] wireHashes = new long[n];
+        for (int i = 0; i < n; i++) {
+            long h = 31;
+            for (int w = 0; w <= n; w++) {
+                h = mix(h, ones[w][i]);
+            }
+            wireHashes[i] = h;
+        }
+        Arrays.sort(wireHashes);
+        for (long h : wireHashes) {
+            hash = mix(hash, h);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // Compares sorted arrays of packed sequences lexicographically.
+    private static int compare(long[] a, long[] b) {
+        for (int k = 0; k < Math.min(a.length, b.length); k++) {
+            int c = PackedSequence.compare(a[k], b[k]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Canonical labeling of the wires of a set of sequences by partition refinement and
+     * individualization, with pruning by automorphisms as in nauty.
+     */
+    private static final class Labeling {
+
+        private static final int NONE = Integer.MAX_VALUE;
+
+        private final long[] seqs;
+        private final int n;
+        private final int[][] together; // together[i][j]: sequences with ones on wires i and j
+        private final int[][] initial; // initial[i][w]: sequences of weight w with a one on wire i
+        private final int[] path; // path[k]: the wire individualized at level k
+        private final ArrayList<int[]> automorphisms = new ArrayList<>();
+        private long[] first; // image at the first leaf
+        private int[] firstLabel;
+        private long[] best;
+        private int[] bestLabel;
+
+        Labeling(long[] seqs, int n) {
+            this.seqs = seqs;
+            this.n = n;
+            together = new int[n][n];
+            int[][] onesByWeight = new int[n][n + 1];
+            for (long seq : seqs) {
+                int w = Long.bitCount(seq);
+                for (int i = 0; i < n; i++) {
+                    if (PackedSequence.get(seq, n, i) == 1) {
+                        onesByWeight[i][w]++;
+                        for (int j = 0; j < n; j++) {
+                            together[i][j] += PackedSequence.get(seq, n, j);
+                        }
+                    }
+                }
+            }
+            initial = onesByWeight;
+            path = new int[n];
+        }
+
+        long[] canonical() {
+            int[] cells = rank(initial);
+            search(refine(cells), 0, -1);
+            return best;
+        }
+
+        // Searches the tree of individualizations below a stable partition. The divergence is the
+        // level at which the current path left the first path, or -1 while on it. Returns the
+        // level to which the search unwinds, or NONE to continue.
+        private int search(int[] cells, int level, int divergence) {
+            int target = -1;
+            for (int c = 0; c < n && target < 0; c++) {
+                int count = 0;
+                for (int i = 0; i < n; i++) {
+                    if (cells[i] == c) {
+                        count++;
+                    }
+                }
+                if (count > 1) {
+                    target = c;
+                }
+            }
+            if (target < 0) {
+                return leaf(cells, divergence);
+            }
+            boolean[] tried = new boolean[n];
+            boolean firstChild = true;
+            for (int v = 0; v < n; v++) {
+                if (cells[v] != target || sameOrbit(v, tried, level)) {
+                    continue;
+                }
+                tried[v] = true;
+                path[level] = v;
+                // Individualize wire v: it comes first among the wires of its cell.
+                int[][] keys = new int[n][];
+                for (int i = 0; i < n; i++) {
+                    keys[i] = new int[] {2 * cells[i] + (cells[i] == target && i != v ? 1 : 0)};
+                }
+                int childDivergence = divergence >= 0 || firstChild ? divergence : level;
+                firstChild = false;
+                int unwind = search(refine(rank(keys)), level + 1, childDivergence);
+                if (unwind < level) {
+                    return unwind;
+                }
+            }
+            return NONE;
+        }
+
+        // A leaf whose image equals that of another leaf yields an automorphism. If the other
+        // leaf is the first, the subtree below the divergence from the first path is the image
+        // of a subtree already searched, so the search unwinds to the divergence.
+        private int leaf(int[] cells, int divergence) {
+            long[] image = image(cells);
+            if (first == null) {
+                first = image;
+                firstLabel = cells;
+                best = image;
+                bestLabel = cells;
+                return NONE;
+            }
+            if (Arrays.equals(image, first)) {
+                automorphisms.add(automorphism(cells, firstLabel));
+                return divergence;
+            }
+            int c = compare(image, best);
+            if (c == 0) {
+                automorphisms.add(automorphism(cells, bestLabel));
+            } else if (c < 0) {
+                best = image;
+                bestLabel = cells;
+            }
+            return NONE;
+        }
+
+        // Maps each wire to the wire given the same position by the other labeling.
+        private int[] automorphism(int[] label, int[] other) {
+            int[] inverse = new int[n];
+            for (int j = 0; j < n; j++) {
+                inverse[other[j]] = j;
+            }
+            int[] gamma = new int[n];
+            for (int i = 0; i < n; i++) {
+                gamma[i] = inverse[label[i]];
+            }
+            return gamma;
+        }
+
+        // Tests whether wire v is in the orbit of a tried wire under the automorphisms found so
+        // far that fix the wires individualized above this level.
+        private boolean sameOrbit(int v, boolean[] tried, int level) {
+            int[] parent = new int[n];
+            for (int i = 0; i < n; i++) {
+                parent[i] = i;
+            }
+            for (int[] gamma : automorphisms) {
+                boolean fixes = true;
+                for (int k = 0; k < level && fixes; k++) {
+                    fixes = gamma[path[k]] == path[k];
+                }
+                if (fixes) {
+                    for (int i = 0; i < n; i++) {
+                        parent[find(parent, i)] = find(parent, gamma[i]);
+                    }
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                if (tried[u] && find(parent, u) == find(parent, v)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int find(int[] parent, int i) {
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        // Splits cells by the number of ones each wire shares with the wires of every cell.
+        private int[] refine(int[] cells) {
+            int numCells = count(cells);
+            while (true) {
+                int[][] keys = new int[n][];
+                for (int i = 0; i < n; i++) {
+                    int[] key = new int[1 + n];
+                    key[0] = cells[i];
+                    // For each cell in order, the sorted counts shared with its wires.
+                    int k = 1;
+                    for (int c = 0; c < numCells; c++) {
+                        int start = k;
+                        for (int j = 0; j < n; j++) {
+                            if (cells[j] == c) {
+                                key[k++] = together[i][j];
+                            }
+                        }
+                        Arrays.sort(key, start, k);
+                    }
+                    keys[i] = key;
+                }
+                int[] refined = rank(keys);
+                int refinedCells = count(refined);
+                if (refinedCells == numCells) {
+                    return refined;
+                }
+                cells = refined;
+                numCells = refinedCells;
+            }
+        }
+
+        // Numbers the wires by the rank of their keys, equal keys getting equal numbers.
+        private int[] rank(int[][] keys) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compareKeys(keys[a], keys[b]));
+            int[] cells = new int[n];
+            int c = 0;
+            for (int k = 0; k < n; k++) {
+                if (k > 0 && compareKeys(keys[order[k]], keys[order[k - 1]]) != 0) {
+                    c++;
+                }
+                cells[order[k]] = c;
+            }
+            return cells;
+        }
+
+        private static int compareKeys(int[] a, int[] b) {
+            for (int k = 0; k < Math.min(a.length, b.length); k++) {
+                if (a[k] != b[k]) {
+                    return Integer.compare(a[k], b[k]);
+                }
+            }
+            return Integer.compare(a.length, b.length);
+        }
+
+        private int count(int[] cells) {
+            int max = -1;
+            for (int c : cells) {
+                max = Math.max(max, c);
+            }
+            return max + 1;
+        }
+
+        // Moves the bit of wire i to wire cells[i] in every sequence and sorts the result.
+        private long[] image(int[] cells) {
+            long[] image = new long[seqs.length];
+            for (int k = 0; k < seqs.length; k++) {
+                long seq = 0;
+                for (int i = 0; i < n; i++) {
+                    if (PackedSequence.get(seqs[k], n, i) == 1) {
+                        seq |= 1L << (n - 1 - cells[i]);
+                    }
+                }
+                image[k] = seq ^ Long.MIN_VALUE;
+            }
+            Arrays.sort(image);
+            for (int k = 0; k < image.length; k++) {
+                image[k] ^= Long.MIN_VALUE;
+            }
+            return image;
+        }
+    }
+}
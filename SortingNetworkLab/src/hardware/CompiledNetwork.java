@@ -0,0 +1,154 @@
+package hardware;
+
+import java.util.List;
+
+/**
+ * An immutable, flattened form of a comparison network for repeated evaluation. The comparators
+ * are stored in layer order as a plain array of wire pairs, and, for networks on at most 64 wires,
+ * as the shift-and-mask steps of a {@link LayerKernel}, each applying all comparators of a layer
+ * spanning the same number of wires. Evaluation is a tight loop over primitive arrays with no
+ * virtual calls or branches per comparator, so one compiled network can be evaluated millions of
+ * times cheaply and shared between threads.
+ *
+ * @author Drue Coles
+ * @see Network#compile()
+ */
+public final class CompiledNetwork {
+
+    private final int numWires;
+
+    // top and bottom wire of comparator k at indices 2k and 2k + 1, in layer order
+    private final int[] wirePairs;
+
+    // evaluates packed sequences; null for networks on more than 64 wires
+    private final LayerKernel kernel;
+
+    /**
+     * @param layers the layers of a network, each a list of disjoint comparators
+     * @param n the number of wires
+     */
+    CompiledNetwork(List<? extends List<Comparator>> layers, int n) {
+        numWires = n;
+        int size = 0;
+        for (List<Comparator> layer : layers) {
+            size += layer.size();
+        }
+        wirePairs = new int[2 * size];
+        int c = 0;
+        for (List<Comparator> layer : layers) {
+            for (Comparator comp : layer) {
+                wirePairs[c++] = comp.getTop();
+                wirePairs[c++] = comp.getBottom();
+            }
+        }
+        kernel = n > PackedSequence.MAX_WIRES ? null : new LayerKernel(layers, n);
+    }
+
+    /**
+     * @return the number of wires of this network
+     */
+    public int getNumberOfWires() {
+        return numWires;
+    }
+
+    /**
+     * @return the number of comparators in this network
+     */
+    public int size() {
+        return wirePairs.length / 2;
+    }
+
+    /**
+     * @return the number of shift-and-mask steps per evaluation of a packed sequence, or 0 if the
+     * network has more than 64 wires
+     */
+    public int numberOfSteps() {
+        return kernel == null ? 0 : kernel.numberOfSteps();
+    }
+
+    /**
+     * Operates on a packed binary input sequence. Requires a network on at most 64 wires.
+     *
+     * @param seq the packed binary input sequence
+     * @return the packed output sequence
+     */
+    public long operateOn(long seq) {
+        return kernel.operateOn(seq);
+    }
+
+    /**
+     * Operates on words of a bit-sliced evaluation, in which word i carries the values of wire i
+     * for 64 inputs at once.
+     *
+     * @param wires one word per wire, overwritten with the outputs
+     */
+    public void operateOn(long[] wires) {
+        for (int c = 0; c < wirePairs.length; c += 2) {
+            long a = wires[wirePairs[c]];
+            long b = wires[wirePairs[c + 1]];
+            wires[wirePairs[c]] = a & b;
+            wires[wirePairs[c + 1]] = a | b;
+        }
+    }
+
+    /**
+     * Operates on words of a bit-sliced evaluation and counts, for each comparator, the lanes in
+     * which it swapped its values, i.e., held a 1 on its top wire and a 0 on its bottom wire.
+     *
+     * @param wires one word per wire, overwritten with the outputs
+     * @param lanes a mask of the lanes that hold inputs
+     * @param swaps one count per comparator in layer order, to which the counts are added
+     */
+    void operateOn(long[] wires, long lanes, long[] swaps) {
+        for (int c = 0; c < wirePairs.length; c += 2) {
+            long a = wires[wirePairs[c]];
+            long b = wires[wirePairs[c + 1]];
+            swaps[c >> 1] += Long.bitCount(a & ~b & lanes);
+            wires[wirePairs[c]] = a & b;
+            wires[wirePairs[c + 1]] = a | b;
+        }
+    }
+
+    /**
+     * @param inputs a set of packed input sequences
+     * @return the set of all unsorted outputs produced by this network on a given set of inputs
+     */
+    public SequenceSet getUnsortedOutputs(SequenceSet inputs) {
+        long start = Metrics.start();
+        long[] insertions = new long[1];
+        SequenceSet unsortedOutputs = new SequenceSet(numWires, inputs.size());
+        inputs.forEach((seq) -> {
+            long output = operateOn(seq);
+            if (!PackedSequence.isSorted(output)) {
+                unsortedOutputs.add(output);
+                insertions[0]++;
+            }
+        });
+        Metrics.recordEvaluation(Metrics.Timer.SUFFIX_EVALUATION, start, inputs.size(), size());
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions[0]);
+        return unsortedOutputs;
+    }
+
+    /**
+     * Evaluates this network on the sequences of a store, reading them one at a time from the
+     * mapped file, so that the inputs are never held on the heap.
+     *
+     * @param inputs a store of packed input sequences
+     * @return the set of all unsorted outputs produced by this network on the inputs
+     */
+    public SequenceSet getUnsortedOutputs(SequenceStore inputs) {
+        long start = Metrics.start();
+        long[] insertions = new long[1];
+        SequenceSet unsortedOutputs = new SequenceSet(numWires);
+        inputs.forEach((seq) -> {
+            long output = operateOn(seq);
+            if (!PackedSequence.isSorted(output)) {
+                unsortedOutputs.add(output);
+                insertions[0]++;
+            }
+        });
+        Metrics.recordEvaluation(Metrics.Timer.SUFFIX_EVALUATION, start, inputs.size(), size());
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions[0]);
+        return unsortedOutputs;
+    }
+}
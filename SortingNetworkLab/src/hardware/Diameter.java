@@ -0,0 +1,101 @@
+package hardware;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the diameter of a set of packed sequences of length n. Sequences are bucketed by
+ * weight: two sequences of weights a and b differ in at most min(a + b, 2n - a - b) positions,
+ * so pairs of buckets are visited in decreasing order of that bound and the search stops as soon
+ * as no remaining pair of buckets can beat the largest distance found, which happens at once if
+ * a distance of n is found.
+ *
+ * @author Drue Coles
+ */
+final class Diameter {
+
+    // pairs of sequences below which a pair of buckets is compared on a single thread
+    private static final long PARALLEL_PAIRS = 1 << 16;
+
+    private Diameter() {
+    }
+
+    /**
+     * @param set distinct packed sequences
+     * @param n the length of the sequences
+     * @param parallel whether to compare large pairs of buckets on all cores
+     * @return the largest Hamming distance between two sequences of the set
+     */
+    static int of(long[] set, int n, boolean parallel) {
+        long[][] buckets = bucketByWeight(set, n);
+
+        // Pairs of nonempty buckets (a <= b), largest bound first.
+        ArrayList<int[]> pairs = new ArrayList<>();
+        for (int a = 0; a <= n; a++) {
+            for (int b = a; b <= n && buckets[a].length > 0; b++) {
+                if (buckets[b].length > 0 && (a < b || buckets[a].length > 1)) {
+                    pairs.add(new int[] {a, b, Math.min(a + b, 2 * n - a - b)});
+                }
+            }
+        }
+        pairs.sort((p, q) -> Integer.compare(q[2], p[2]));
+
+        int best = 0;
+        for (int[] pair : pairs) {
+            int bound = pair[2];
+            if (bound <= best) {
+                break;
+            }
+            long[] x = buckets[pair[0]];
+            long[] y = buckets[pair[1]];
+            boolean same = pair[0] == pair[1];
+            int found = parallel && (long) x.length * y.length >= PARALLEL_PAIRS
+                    ? IntStream.range(0, x.length).parallel()
+                            .map((i) -> farthest(x[i], y, same ? i + 1 : 0, bound)).max()
+                            .getAsInt()
+                    : farthest(x, y, same, bound, best);
+            best = Math.max(best, found);
+        }
+        return best;
+    }
+
+    private static long[][] bucketByWeight(long[] set, int n) {
+        int[] counts = new int[n + 1];
+        for (long seq : set) {
+            counts[Long.bitCount(seq)]++;
+        }
+        long[][] buckets = new long[n + 1][];
+        for (int w = 0; w <= n; w++) {
+            buckets[w] = new long[counts[w]];
+            counts[w] = 0;
+        }
+        for (long seq : set) {
+            int w = Long.bitCount(seq);
+            buckets[w][counts[w]++] = seq;
+        }
+        return buckets;
+    }
+
+    // Largest distance between two buckets, or between distinct members of one bucket, stopping
+    // early at the bound.
+    private static int farthest(long[] x, long[] y, boolean same, int bound, int best) {
+        for (int i = 0; i < x.length && best < bound; i++) {
+            best = Math.max(best, farthest(x[i], y, same ? i + 1 : 0, bound));
+        }
+        return best;
+    }
+
+    private static int farthest(long seq, long[] y, int from, int bound) {
+        int best = 0;
+        for (int j = from; j < y.length; j++) {
+            int d = Long.bitCount(seq ^ y[j]);
+            if (d > best) {
+                best = d;
+                if (best == bound) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,113 @@
+package hardware;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates a network on all binary inputs by enumerating the distinct outputs of its first
+ * layer instead of the inputs. Each comparator of the first layer leaves 00, 01 or 11 on its two
+ * wires, so a first layer of c comparators on n wires has 3^c 2^(n - 2c) distinct outputs, and the
+ * rest of the network is evaluated on a fraction (3/4)^c of the inputs. A full first layer on 24
+ * wires leaves 531441 of 16777216 inputs, and one on 32 wires leaves 43 million of 4 billion.
+ *
+ * The outputs of the first layer are enumerated depth first, one comparator or free wire at a
+ * time, so each is built from its parent with a single OR. For evaluation on all cores, the
+ * enumeration is split on its first levels and each part collects its unsorted outputs in a set
+ * of its own.
+ *
+ * @author Drue Coles
+ */
+final class FirstLayerImage {
+
+    // parts per core of a parallel enumeration
+    private static final int PARTS_PER_CORE = 16;
+
+    private final CompiledNetwork rest;
+    private final int numWires;
+
+    // digits[d] holds the bits that comparator or free wire d can contribute to an output
+    private final long[][] digits;
+
+    /**
+     * @param firstLayer disjoint comparators
+     * @param rest the comparators that follow the first layer
+     * @param n the number of wires, at most 64
+     */
+    FirstLayerImage(List<Comparator> firstLayer, CompiledNetwork rest, int n) {
+        this.rest = rest;
+        numWires = n;
+        ArrayList<long[]> list = new ArrayList<>();
+        long covered = 0;
+        for (Comparator comp : firstLayer) {
+            long top = 1L << (n - 1 - comp.getTop());
+            long bottom = 1L << (n - 1 - comp.getBottom());
+            list.add(new long[] {0, bottom, top | bottom});
+            covered |= top | bottom;
+        }
+        for (int i = 0; i < n; i++) {
+            long wire = 1L << (n - 1 - i);
+            if ((covered & wire) == 0) {
+                list.add(new long[] {0, wire});
+            }
+        }
+        digits = list.toArray(new long[list.size()][]);
+    }
+
+    /**
+     * @return the number of distinct outputs of the first layer, on which the rest is evaluated
+     */
+    long size() {
+        long size = 1;
+        for (long[] digit : digits) {
+            size *= digit.length;
+        }
+        return size;
+    }
+
+    /**
+     * @param parallel whether to split the enumeration across the common fork-join pool
+     * @return the set of all unsorted outputs of the network
+     */
+    SequenceSet operateOnAll(boolean parallel) {
+        if (!parallel) {
+            SequenceSet unsortedOutputs = new SequenceSet(numWires);
+            enumerate(0, 0, unsortedOutputs);
+            return unsortedOutputs;
+        }
+
+        // Enumerate the first levels to get the roots of the parts.
+        int parts = PARTS_PER_CORE * Runtime.getRuntime().availableProcessors();
+        long[] roots = {0};
+        int level = 0;
+        while (level < digits.length && roots.length < parts) {
+            long[] digit = digits[level++];
+            long[] next = new long[roots.length * digit.length];
+            for (int k = 0; k < next.length; k++) {
+                next[k] = roots[k / digit.length] | digit[k % digit.length];
+            }
+            roots = next;
+        }
+        long[] finalRoots = roots;
+        int from = level;
+        return IntStream.range(0, roots.length).parallel().collect(
+                () -> new SequenceSet(numWires),
+                (set, k) -> enumerate(from, finalRoots[k], set),
+                SequenceSet::addAll);
+    }
+
+    // Evaluates the rest of the network on every output of the first layer that extends a
+    // partial output fixed in its first levels.
+    private void enumerate(int level, long partial, SequenceSet unsortedOutputs) {
+        if (level == digits.length) {
+            long output = rest.operateOn(partial);
+            if (!PackedSequence.isSorted(output)) {
+                unsortedOutputs.add(output);
+            }
+            return;
+        }
+        for (long bits : digits[level]) {
+            enumerate(level + 1, partial | bits, unsortedOutputs);
+        }
+    }
+}
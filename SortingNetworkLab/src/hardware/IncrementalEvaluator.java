@@ -0,0 +1,172 @@
+package hardware;
+
+import java.util.ArrayList;
+
+/**
+ * Evaluates a sequence of networks that differ by small edits on a fixed set of inputs. The sets
+ * of unsorted outputs after every k-th comparator are kept as checkpoints. When a network is
+ * evaluated, the comparators it shares with the previously evaluated network are found, and
+ * evaluation resumes from the last checkpoint within that common prefix. Inserting, moving or
+ * deleting a comparator at position i therefore only re-runs the comparators from about i onward.
+ *
+ * Outputs that are sorted are dropped at every checkpoint, since no comparator can unsort them.
+ *
+ * The swaps of each comparator are counted in the same pass that evaluates it, and the counts are
+ * kept with the checkpoints, so only the comparators that are re-run are counted again.
+ *
+ * @author Drue Coles
+ */
+public class IncrementalEvaluator {
+
+    /**
+     * The default number of comparators between checkpoints.
+     */
+    public static final int DEFAULT_INTERVAL = 4;
+
+    private final int numWires;
+    private final int interval;
+
+    // comparators of the most recently evaluated network
+    private int[] tops = new int[0];
+    private int[] bottoms = new int[0];
+
+    // checkpoints.get(k) holds the unsorted outputs after the first k * interval comparators
+    private final ArrayList<SequenceSet> checkpoints = new ArrayList<>();
+    private SequenceSet outputs;
+
+    // segmentSwaps.get(k) holds the swaps of the comparators from checkpoint k to checkpoint k + 1
+    private final ArrayList<long[]> segmentSwaps = new ArrayList<>();
+    private long[] swaps = new long[0]; // swaps of every comparator of the last network
+
+    /**
+     * Creates an evaluator with the default checkpoint interval.
+     *
+     * @param inputs the set of packed input sequences, which must not be modified afterwards
+     */
+    public IncrementalEvaluator(SequenceSet inputs) {
+        this(inputs, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Creates an evaluator.
+     *
+     * @param inputs the set of packed input sequences, which must not be modified afterwards
+     * @param interval the number of comparators between checkpoints
+     */
+    public IncrementalEvaluator(SequenceSet inputs, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.numWires = inputs.getNumberOfWires();
+        this.interval = interval;
+        checkpoints.add(inputs);
+        outputs = inputs;
+    }
+
+    /**
+     * Returns the set of unsorted outputs produced by a network on the inputs of this evaluator,
+     * reusing the checkpoints of the previously evaluated network. The returned set is shared
+     * with later calls and must not be modified.
+     *
+     * @param network a network on the same number of wires as the inputs
+     */
+    public SequenceSet getUnsortedOutputs(Network network) {
+        return getUnsortedOutputs(network, new long[network.size()]);
+    }
+
+    /**
+     * Returns the set of unsorted outputs produced by a network on the inputs of this evaluator,
+     * as {@link #getUnsortedOutputs(Network)} does, and counts in the same evaluation how often
+     * each comparator swaps. A comparator is counted on the distinct unsorted sequences that
+     * reach it from the checkpoint before it, so its count is 0 exactly when it swaps on none of
+     * the inputs.
+     *
+     * @param network a network on the same number of wires as the inputs
+     * @param swaps receives the number of swaps of each comparator, in the order of the network
+     * @return the unsorted outputs, which must not be modified
+     */
+    public synchronized SequenceSet getUnsortedOutputs(Network network, long[] swaps) {
+        if (network.getNumberOfWires() != numWires) {
+            throw new IllegalArgumentException("Expected a network on " + numWires + " wires.");
+        }
+        int size = network.size();
+        int[] newTops = new int[size];
+        int[] newBottoms = new int[size];
+        int common = -1;
+        for (int i = 0; i < size; i++) {
+            newTops[i] = network.getComparison(i, 0);
+            newBottoms[i] = network.getComparison(i, 1);
+            if (common < 0 && (i >= tops.length || newTops[i] != tops[i]
+                    || newBottoms[i] != bottoms[i])) {
+                common = i;
+            }
+        }
+        if (common < 0) {
+            common = size;
+        }
+        if (common == size && size == tops.length) {
+            System.arraycopy(this.swaps, 0, swaps, 0, size);
+            return outputs;
+        }
+        long start = Metrics.start();
+
+        // Discard checkpoints past the common prefix and resume from the last one that remains.
+        int kept = common / interval + 1;
+        while (checkpoints.size() > kept) {
+            checkpoints.remove(checkpoints.size() - 1);
+            segmentSwaps.remove(segmentSwaps.size() - 1);
+        }
+        tops = newTops;
+        bottoms = newBottoms;
+        int from = (checkpoints.size() - 1) * interval;
+        SequenceSet set = checkpoints.get(checkpoints.size() - 1);
+        while (from + interval <= size) {
+            long[] segment = new long[interval];
+            set = apply(set, from, from + interval, segment);
+            checkpoints.add(set);
+            segmentSwaps.add(segment);
+            from += interval;
+        }
+        long[] tail = new long[size - from];
+        outputs = from < size ? apply(set, from, size, tail) : set;
+        this.swaps = new long[size];
+        for (int k = 0; k < segmentSwaps.size(); k++) {
+            System.arraycopy(segmentSwaps.get(k), 0, this.swaps, k * interval, interval);
+        }
+        System.arraycopy(tail, 0, this.swaps, from, tail.length);
+        System.arraycopy(this.swaps, 0, swaps, 0, size);
+        Metrics.record(Metrics.Timer.SUFFIX_EVALUATION, start);
+        return outputs;
+    }
+
+    /**
+     * @return the number of checkpoints currently held, including the inputs
+     */
+    public synchronized int numberOfCheckpoints() {
+        return checkpoints.size();
+    }
+
+    // Runs the comparators in [from, to) on every sequence of a set in a single pass and adds the
+    // swaps of comparator c to swaps[c - from].
+    private SequenceSet apply(SequenceSet set, int from, int to, long[] swaps) {
+        SequenceSet result = new SequenceSet(numWires, set.size());
+        long[] insertions = new long[1];
+        set.forEach((seq) -> {
+            for (int c = from; c < to; c++) {
+                long next = PackedSequence.sort(seq, numWires, tops[c], bottoms[c]);
+                if (next != seq) {
+                    swaps[c - from]++;
+                    seq = next;
+                }
+            }
+            if (!PackedSequence.isSorted(seq)) {
+                result.add(seq);
+                insertions[0]++;
+            }
+        });
+        Metrics.add(Metrics.Counter.INPUTS_EVALUATED, set.size());
+        Metrics.add(Metrics.Counter.COMPARATOR_APPLICATIONS, (long) set.size() * (to - from));
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions[0]);
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package hardware;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates the layered form of a network on packed sequences, one layer at a time. Since the
+ * comparators of a layer are disjoint, all comparators of the layer that span the same number of
+ * wires are applied together with a single shift-and-mask step. A {@link CompiledNetwork} runs
+ * its packed evaluation through a kernel.
+ *
+ * @author Drue Coles
+ * @see Network#getLayers()
+ */
+final class LayerKernel {
+
+    // step k swaps the bits at the positions in masks[k] with the bits shifts[k] places higher
+    private final int[] shifts;
+    private final long[] masks;
+
+    /**
+     * @param layers the layers of a network, each a list of disjoint comparators
+     * @param n the number of wires, at most 64
+     */
+    LayerKernel(List<? extends List<Comparator>> layers, int n) {
+        // A step applies at least one comparator, so there are no more steps than comparators.
+        int size = 0;
+        for (List<Comparator> layer : layers) {
+            size += layer.size();
+        }
+        int steps = 0;
+        int[] shiftBuffer = new int[size];
+        long[] maskBuffer = new long[size];
+        long[] maskBySpan = new long[n];
+        for (List<Comparator> layer : layers) {
+            for (Comparator comp : layer) {
+                maskBySpan[comp.getBottom() - comp.getTop()] |= 1L << (n - 1 - comp.getBottom());
+            }
+            for (int span = 1; span < n; span++) {
+                if (maskBySpan[span] != 0) {
+                    shiftBuffer[steps] = span;
+                    maskBuffer[steps] = maskBySpan[span];
+                    steps++;
+                    maskBySpan[span] = 0;
+                }
+            }
+        }
+        shifts = Arrays.copyOf(shiftBuffer, steps);
+        masks = Arrays.copyOf(maskBuffer, steps);
+    }
+
+    /**
+     * @param seq a packed input sequence
+     * @return the packed output sequence
+     */
+    long operateOn(long seq) {
+        for (int k = 0; k < shifts.length; k++) {
+            long swap = (seq >>> shifts[k]) & ~seq & masks[k];
+            seq ^= swap | (swap << shifts[k]);
+        }
+        return seq;
+    }
+
+    /**
+     * @return the number of shift-and-mask steps per evaluation
+     */
+    int numberOfSteps() {
+        return shifts.length;
+    }
+}
@@ -0,0 +1,371 @@
+package hardware;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the evaluation of networks. Metrics are recorded once per
+ * evaluation rather than per input, and only while enabled; when disabled, recording costs a
+ * read of a volatile flag. They can be read directly, through JMX under the name
+ * {@value #OBJECT_NAME}, or as a text summary printed periodically.
+ *
+ * Metrics are disabled unless the system property {@code sortingnetworks.metrics} is "true" or
+ * {@link #setEnabled(boolean)} is called.
+ *
+ * @author Drue Coles
+ */
+public final class Metrics {
+
+    /**
+     * The name under which metrics are registered with the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "hardware:type=Metrics";
+
+    /**
+     * Quantities counted over all evaluations.
+     */
+    public enum Counter {
+        /**
+         * inputs on which a network was evaluated
+         */
+        INPUTS_EVALUATED,
+        /**
+         * comparators applied to single inputs, counting a bit-sliced comparator as 64
+         */
+        COMPARATOR_APPLICATIONS,
+        /**
+         * unsorted outputs inserted into output sets, including duplicates
+         */
+        SET_INSERTIONS
+    }
+
+    /**
+     * Operations whose latency is recorded.
+     */
+    public enum Timer {
+        /**
+         * evaluation of a network on all binary inputs
+         */
+        FULL_SWEEP,
+        /**
+         * computation of the outputs of a cached prefix, such as the Green filter
+         */
+        PREFIX_EVALUATION,
+        /**
+         * evaluation of a network on a given set of inputs, such as the outputs of a prefix
+         */
+        SUFFIX_EVALUATION,
+        /**
+         * time from an edit in the GUI until its unsorted outputs are displayed
+         */
+        GUI_RECALCULATION
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("sortingnetworks.metrics");
+
+    private static final EnumMap<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private static final EnumMap<Timer, Histogram> timers = new EnumMap<>(Timer.class);
+
+    static {
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+        for (Timer timer : Timer.values()) {
+            timers.put(timer, new Histogram());
+        }
+    }
+
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /**
+     * A histogram of latencies in buckets of powers of two nanoseconds.
+     */
+    public static final class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Histogram() {
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            buckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+            count.increment();
+            totalNanos.add(nanos);
+        }
+
+        private void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            totalNanos.reset();
+        }
+
+        /**
+         * @return the number of recorded latencies
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the mean latency in milliseconds, or 0 if none was recorded
+         */
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        /**
+         * Returns an upper bound on a percentile of the latencies: the upper end of the bucket
+         * that holds it, which is at most twice the true value.
+         *
+         * @param fraction the percentile as a fraction, e.g. 0.99
+         * @return the bound in milliseconds, or 0 if no latency was recorded
+         */
+        public double getPercentileMillis(double fraction) {
+            long n = count.sum();
+            long seen = 0;
+            for (int b = 0; b < buckets.length && n > 0; b++) {
+                seen += buckets[b].sum();
+                if (seen >= fraction * n) {
+                    return Math.scalb(1.0, b + 1) / 1e6;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * The operations of {@link Metrics} exposed through JMX.
+     */
+    public interface MetricsMXBean {
+
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        Map<String, Long> getCounters();
+
+        Map<String, Long> getCounts();
+
+        Map<String, Double> getMeanMillis();
+
+        Map<String, Double> getP99Millis();
+
+        void reset();
+    }
+
+    private static final class MXBeanImpl implements MetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Counter counter : Counter.values()) {
+                map.put(counter.name(), get(counter));
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Timer timer : Timer.values()) {
+                map.put(timer.name(), get(timer).getCount());
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Double> getMeanMillis() {
+            Map<String, Double> map = new LinkedHashMap<>();
+            for (Timer timer : Timer.values()) {
+                map.put(timer.name(), get(timer).getMeanMillis());
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Double> getP99Millis() {
+            Map<String, Double> map = new LinkedHashMap<>();
+            for (Timer timer : Timer.values()) {
+                map.put(timer.name(), get(timer).getPercentileMillis(0.99));
+            }
+            return map;
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    /**
+     * @return true if metrics are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording metrics. Values already recorded are kept.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the start time of an operation to be passed to {@link #record(Timer, long)}, or 0
+     * if metrics are disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of an operation started at a time returned by {@link #start()}.
+     */
+    public static void record(Timer timer, long startTime) {
+        if (startTime != 0 && enabled) {
+            timers.get(timer).record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Records the latency of an evaluation together with the work it did.
+     *
+     * @param timer the kind of evaluation
+     * @param startTime a time returned by {@link #start()}
+     * @param inputs the number of inputs evaluated
+     * @param comparators the number of comparators applied to each input
+     */
+    public static void recordEvaluation(Timer timer, long startTime, long inputs,
+            int comparators) {
+        if (startTime != 0 && enabled) {
+            timers.get(timer).record(System.nanoTime() - startTime);
+            counters.get(Counter.INPUTS_EVALUATED).add(inputs);
+            counters.get(Counter.COMPARATOR_APPLICATIONS).add(inputs * comparators);
+        }
+    }
+
+    /**
+     * Adds to a counter if metrics are enabled.
+     */
+    public static void add(Counter counter, long amount) {
+        if (enabled) {
+            counters.get(counter).add(amount);
+        }
+    }
+
+    /**
+     * @return the current value of a counter
+     */
+    public static long get(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * @return the latency histogram of an operation
+     */
+    public static Histogram get(Timer timer) {
+        return timers.get(timer);
+    }
+
+    /**
+     * Clears all counters and histograms.
+     */
+    public static void reset() {
+        counters.values().forEach(LongAdder::reset);
+        timers.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, if not already registered.
+     *
+     * @throws IllegalStateException if registration fails
+     */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MXBeanImpl(), name);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not register metrics with JMX", ex);
+        }
+    }
+
+    /**
+     * Prints a summary of the metrics at a fixed period on a daemon thread, replacing any
+     * periodic dump already running.
+     *
+     * @param periodMillis the time between summaries
+     * @param out the stream to print to
+     */
+    public static synchronized void startPeriodicDump(long periodMillis, PrintStream out) {
+        stopPeriodicDump();
+        dumper = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread thread = new Thread(r, "Metrics dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.println(summary()), periodMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic dump, if one is running.
+     */
+    public static synchronized void stopPeriodicDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    /**
+     * @return a one-line-per-metric summary of the counters and latencies
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder("metrics:");
+        for (Counter counter : Counter.values()) {
+            sb.append("\n  ").append(counter.name().toLowerCase()).append(' ').append(get(counter));
+        }
+        for (Timer timer : Timer.values()) {
+            Histogram h = get(timer);
+            sb.append(String.format("%n  %s count %d mean %.3f ms p99 <= %.3f ms",
+                    timer.name().toLowerCase(), h.getCount(), h.getMeanMillis(),
+                    h.getPercentileMillis(0.99)));
+        }
+        return sb.toString();
+    }
+}
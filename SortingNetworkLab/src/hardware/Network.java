@@ -2,7 +2,14 @@ package hardware;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A sequence of comparators on a set of wires carrying binary values.
@@ -13,6 +20,19 @@ public class Network {
     
     private final ArrayList<Comparator> list;
     private final int NUM_WIRES;   
+
+    // Layered form of this network: each layer is a set of disjoint comparators placed as early
+    // as possible. Appending a comparator extends it directly; inserting one rebuilds it lazily.
+    private final ArrayList<ArrayList<Comparator>> layers = new ArrayList<>();
+    private int[] wireDepth; // number of layers reaching each wire
+    private boolean layersValid = true;
+    private CompiledNetwork compiled; // null until needed after a change
+
+    // number of wires from which evaluation on all inputs is split across cores
+    static final int PARALLEL_WIRES = 18;
+
+    // comparators in the first layer from which its outputs are enumerated instead of the inputs
+    private static final int IMAGE_COMPARATORS = 6;
        
     /**
      * Creates an empty comparison network.
@@ -22,6 +42,7 @@ public class Network {
     public Network(int n) {
         list = new ArrayList<>();
         NUM_WIRES = n;
+        wireDepth = new int[n];
     }
     
     /**
@@ -41,6 +62,7 @@ public class Network {
      */
     public void addComparator(Comparator comp) {
         list.add(comp);
+        appendToLayers(comp);
     }
 
     /**
@@ -50,7 +72,7 @@ public class Network {
      * @param bottom index of the bottom wire
      */
     public void addComparator(int top, int bottom) {
-        list.add(new Comparator(top, bottom));
+        addComparator(new Comparator(top, bottom));
     }
 
     /**
@@ -61,7 +83,7 @@ public class Network {
      * @param bottom index of the bottom wire
      */
     public void addComparator(int i, int top, int bottom) {
-        list.add(i, new Comparator(top, bottom));
+        addComparator(i, new Comparator(top, bottom));
     }
 
     /**
@@ -72,6 +94,15 @@ public class Network {
      */
     public void addComparator(int i, Comparator comp) {
         list.add(i, comp);
+        layersValid = false;
+        compiled = null;
+    }
+
+    /**
+     * @return the number of wires of this network
+     */
+    public int getNumberOfWires() {
+        return NUM_WIRES;
     }
 
     /**
@@ -81,15 +112,85 @@ public class Network {
         return list.size();
     }
 
+    /**
+     * Returns the layered form of this network. Each layer is an array of pairs of wire indices,
+     * in the format of {@link Utilities#getGreenLayer(int)}, of comparators that touch disjoint
+     * wires and can therefore operate at the same time. Every comparator is placed in the earliest
+     * layer that follows all comparators sharing a wire with it, so evaluating the layers in order
+     * gives the same result as evaluating the comparators in order.
+     *
+     * @return the layers of this network
+     */
+    public List<int[][]> getLayers() {
+        validateLayers();
+        ArrayList<int[][]> result = new ArrayList<>();
+        layers.stream().forEach((layer) -> {
+            int[][] pairs = new int[layer.size()][];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = new int[] {layer.get(i).getTop(), layer.get(i).getBottom()};
+            }
+            result.add(pairs);
+        });
+        return result;
+    }
+
+    /**
+     * @return the depth of this network (the number of layers in its layered form)
+     */
+    public int depth() {
+        validateLayers();
+        return layers.size();
+    }
+
+    /**
+     * Operates on a packed binary input sequence one layer at a time. The comparators of a layer
+     * that span the same number of wires are applied together by a single shift-and-mask step.
+     *
+     * @param wires the packed binary input sequence
+     * @return the packed output sequence
+     * @see #getLayers()
+     */
+    public long operateOnLayers(long wires) {
+        return compile().operateOn(wires);
+    }
+
+    /**
+     * Returns a flattened, immutable form of this network for fast repeated evaluation. The
+     * compiled form is cached until a comparator is added, and is safe to share between threads.
+     *
+     * @return the compiled form of this network
+     */
+    public CompiledNetwork compile() {
+        if (compiled == null) {
+            validateLayers();
+            compiled = new CompiledNetwork(layers, NUM_WIRES);
+        }
+        return compiled;
+    }
+
     /**
      * Operates on a binary input sequence.
      *
      * @param wires the binary input sequence
      */
     public void operateOn(BinarySequence wires) {
-        list.stream().forEach((comp) -> {
-            comp.operateOn(wires);
-        });
+        for (Comparator comp : list) {
+            wires.sort(comp.getTop(), comp.getBottom());
+        }
+    }
+    
+    /**
+     * Operates on a packed binary input sequence without allocating.
+     *
+     * @param wires the packed binary input sequence
+     * @return the packed output sequence
+     * @see PackedSequence
+     */
+    public long operateOn(long wires) {
+        for (Comparator comp : list) {
+            wires = PackedSequence.sort(wires, NUM_WIRES, comp.getTop(), comp.getBottom());
+        }
+        return wires;
     }
     
     /**
@@ -98,6 +199,8 @@ public class Network {
      * @return the set of all unsorted outputs produced by this network
      */
     public Set<BinarySequence> operateOnAll() {
+        long start = Metrics.start();
+        long insertions = 0;
         HashSet<BinarySequence> unsortedOutputs = new HashSet<>();
         BinarySequence seq = new BinarySequence(NUM_WIRES);
         seq.increment();
@@ -107,12 +210,186 @@ public class Network {
             operateOn(testSequence);
             if (!testSequence.isSorted()) {                
                 unsortedOutputs.add(testSequence.clone());
+                insertions++;
             }
             seq.increment();
         }
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, 1L << NUM_WIRES, size());
+        Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions);
         return unsortedOutputs;
     }
-    
+
+    /**
+     * Evaluates this network on all binary sequences using bit-sliced evaluation, in which each
+     * wire is a 64-bit word carrying the values of 64 inputs at once. The result is the same as
+     * that of {@link #operateOnAll()}, but is computed with one AND/OR pair per comparator for
+     * every 64 inputs.
+     *
+     * @return the set of all unsorted outputs produced by this network
+     */
+    public Set<BinarySequence> operateOnAllBitSliced() {
+        long start = Metrics.start();
+        Set<BinarySequence> unsortedOutputs = new BitSlicedEvaluator(compile()).operateOnAll();
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, 1L << NUM_WIRES, size());
+        return unsortedOutputs;
+    }
+
+    /**
+     * Evaluates this network on all binary sequences using bit-sliced evaluation and collects the
+     * unsorted outputs in packed form.
+     *
+     * @return the set of all unsorted outputs produced by this network
+     */
+    public SequenceSet operateOnAllPacked() {
+        long start = Metrics.start();
+        SequenceSet unsortedOutputs = new BitSlicedEvaluator(compile()).operateOnAllPacked();
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, 1L << NUM_WIRES, size());
+        return unsortedOutputs;
+    }
+
+    /**
+     * Passes the unsorted output of every binary input to an action, in the order of the inputs,
+     * until the action returns false. Nothing is collected, so a caller that needs only part of
+     * the outputs, or only some property of them, does no more work than it has to. An output
+     * produced by several inputs is passed once for each of them.
+     *
+     * @param action receives each unsorted output in packed form and returns false to stop
+     * @return true if every input was evaluated, false if the action stopped the evaluation
+     */
+    public boolean forEachUnsortedOutput(LongPredicate action) {
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compile());
+        return evaluator.forEachUnsorted(0, evaluator.numberOfBlocks(), action);
+    }
+
+    /**
+     * Returns a lazy stream of the unsorted outputs of all binary inputs, in the order of the
+     * inputs. Inputs are evaluated 64 at a time as the stream is consumed, so short-circuiting
+     * operations such as {@code findFirst} or {@code limit} stop the evaluation early. The stream
+     * can be made parallel. An output produced by several inputs occurs once for each of them;
+     * {@code distinct()} or {@link #operateOnAllPacked()} gives each output once.
+     *
+     * @return the unsorted outputs in packed form
+     */
+    public LongStream unsortedOutputs() {
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compile());
+        return StreamSupport.longStream(
+                new UnsortedOutputSpliterator(evaluator, 0, evaluator.numberOfBlocks()), false);
+    }
+
+    /**
+     * Counts the binary inputs that this network does not sort, without collecting any outputs.
+     *
+     * @return the number of inputs whose outputs are not sorted
+     */
+    public long countUnsortedInputs() {
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compile());
+        return evaluator.countUnsorted(0, evaluator.numberOfBlocks());
+    }
+
+    /**
+     * Returns true if this network sorts every binary input, and hence, by the 0-1 principle,
+     * every input. The evaluation stops at the first 64-input block with an unsorted output.
+     */
+    public boolean isSortingNetwork() {
+        return !findCounterexample().isPresent();
+    }
+
+    /**
+     * Finds the smallest binary input, in the order of {@link BinarySequence#increment()}, that
+     * this network does not sort.
+     *
+     * @return the packed input, or an empty result if this is a sorting network
+     */
+    public OptionalLong findCounterexample() {
+        long input = new BitSlicedEvaluator(compile()).firstUnsortedInput();
+        return input < 0 ? OptionalLong.empty() : OptionalLong.of(input);
+    }
+
+    /**
+     * Returns true if every layer of this network is closed under the reflection that maps a
+     * comparator on wires i and j to one on wires n-1-j and n-1-i, as in Green's network. Such a
+     * network maps the reversed complement of an input to the reversed complement of its output.
+     *
+     * @see PackedSequence#reverseComplement(long, int)
+     */
+    public boolean isReflectionSymmetric() {
+        validateLayers();
+        for (ArrayList<Comparator> layer : layers) {
+            HashSet<Long> pairs = new HashSet<>();
+            layer.stream().forEach((comp) -> {
+                pairs.add(pair(comp.getTop(), comp.getBottom()));
+            });
+            for (Comparator comp : layer) {
+                int top = NUM_WIRES - 1 - comp.getBottom();
+                int bottom = NUM_WIRES - 1 - comp.getTop();
+                if (!pairs.contains(pair(top, bottom))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long pair(int top, int bottom) {
+        return ((long) top << 32) | bottom;
+    }
+
+    /**
+     * Evaluates this network on all binary sequences, enumerating the inputs by weight. If this
+     * network is reflection symmetric, only about half of the inputs are evaluated and the
+     * outputs of the others are obtained by reflection. The union of the classes is the result of
+     * {@link #operateOnAllPacked()}.
+     *
+     * @return an array of n + 1 sets whose w-th element holds the unsorted outputs of weight w
+     * @see #isReflectionSymmetric()
+     */
+    public SequenceSet[] operateOnAllByWeight() {
+        return new WeightClassEvaluator(compile(), isReflectionSymmetric()).operateOnAll();
+    }
+
+    /**
+     * Evaluates this network on all binary sequences in parallel. The input space is split into
+     * ranges of 64-input blocks that are evaluated by the common fork-join pool, each with its own
+     * buffer and output set, and the output sets are merged at the end. The result is the same as
+     * that of {@link #operateOnAllPacked()}.
+     *
+     * @return the set of all unsorted outputs produced by this network
+     */
+    public SequenceSet operateOnAllParallel() {
+        long start = Metrics.start();
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compile());
+        SequenceSet unsortedOutputs = ForkJoinPool.commonPool().invoke(
+                new ParallelSweep(evaluator, 0, evaluator.numberOfBlocks()));
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, 1L << NUM_WIRES, size());
+        return unsortedOutputs;
+    }
+
+    /**
+     * Evaluates this network on all binary sequences with the engine expected to be fastest for
+     * its width and shape. If the first layer has enough comparators, only the distinct outputs
+     * of that layer are enumerated and passed through the rest of the network; otherwise all
+     * inputs are swept with bit-sliced evaluation. Either way, the work is split across cores
+     * from {@value #PARALLEL_WIRES} wires on. The result is the same as that of
+     * {@link #operateOnAllPacked()}.
+     *
+     * @return the set of all unsorted outputs produced by this network
+     */
+    public SequenceSet operateOnAllFastest() {
+        validateLayers();
+        boolean parallel = NUM_WIRES >= PARALLEL_WIRES
+                && Runtime.getRuntime().availableProcessors() > 1;
+        if (layers.isEmpty() || layers.get(0).size() < IMAGE_COMPARATORS) {
+            return parallel ? operateOnAllParallel() : operateOnAllPacked();
+        }
+        long start = Metrics.start();
+        FirstLayerImage image = new FirstLayerImage(layers.get(0),
+                new CompiledNetwork(layers.subList(1, layers.size()), NUM_WIRES), NUM_WIRES);
+        SequenceSet unsortedOutputs = image.operateOnAll(parallel);
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, image.size(),
+                size() - layers.get(0).size());
+        return unsortedOutputs;
+    }
+
     /**
      * @param inputs a set of input sequences
      * @return the set of all unsorted outputs produced by this network on a given set of inputs
@@ -125,6 +402,23 @@ public class Network {
         
         HashSet<BinarySequence> unsortedOutputs = new HashSet<>();
 
+        // On at most 64 wires, evaluate packed copies of the inputs.
+        if (NUM_WIRES <= PackedSequence.MAX_WIRES) {
+            long start = Metrics.start();
+            long insertions = 0;
+            for (BinarySequence seq : inputs) {
+                long output = operateOn(seq.toLong());
+                if (!PackedSequence.isSorted(output)) {
+                    unsortedOutputs.add(new BinarySequence(output, NUM_WIRES));
+                    insertions++;
+                }
+            }
+            Metrics.recordEvaluation(Metrics.Timer.SUFFIX_EVALUATION, start, inputs.size(),
+                    size());
+            Metrics.add(Metrics.Counter.SET_INSERTIONS, insertions);
+            return unsortedOutputs;
+        }
+
         // Iterate over all sequences in the input set. For each, clone it and operate on it.
         // If the result is not sorted, add it to the set of unsorted outputs.
         inputs.stream().map((seq) -> seq.clone()).map((testSequence) -> {
@@ -137,6 +431,199 @@ public class Network {
         return unsortedOutputs;
     }
 
+    /**
+     * @param inputs a set of packed input sequences, or null for all binary sequences
+     * @return the set of all unsorted outputs produced by this network on a given set of inputs
+     */
+    public SequenceSet getUnsortedOutputs(SequenceSet inputs) {
+        if (inputs == null) {
+            return operateOnAllPacked();
+        }
+        return compile().getUnsortedOutputs(inputs);
+    }
+
+    /**
+     * Evaluates this network on the sequences of a store. The inputs are streamed from the mapped
+     * file, so a large set of prefix outputs computed once can be reused without loading it.
+     *
+     * @param inputs a store of packed input sequences
+     * @return the set of all unsorted outputs produced by this network on the inputs
+     */
+    public SequenceSet getUnsortedOutputs(SequenceStore inputs) {
+        if (inputs.getNumberOfWires() != NUM_WIRES) {
+            throw new IllegalArgumentException("Store has " + inputs.getNumberOfWires()
+                    + " wires; network has " + NUM_WIRES + ".");
+        }
+        return compile().getUnsortedOutputs(inputs);
+    }
+
+    private void appendToLayers(Comparator comp) {
+        compiled = null;
+        if (!layersValid) {
+            return;
+        }
+        int top = comp.getTop();
+        int bottom = comp.getBottom();
+        int depth = Math.max(wireDepth[top], wireDepth[bottom]);
+        if (depth == layers.size()) {
+            layers.add(new ArrayList<>());
+        }
+        layers.get(depth).add(comp);
+        wireDepth[top] = depth + 1;
+        wireDepth[bottom] = depth + 1;
+    }
+
+    private void validateLayers() {
+        if (layersValid) {
+            return;
+        }
+        layers.clear();
+        wireDepth = new int[NUM_WIRES];
+        layersValid = true;
+        list.stream().forEach((comp) -> {
+            appendToLayers(comp);
+        });
+    }
+
+    /**
+     * Counts, for each comparator, the inputs on which it swaps the values on its wires. The
+     * counts are gathered during bit-sliced evaluation at the cost of one extra bit count per
+     * comparator for every 64 inputs: a comparator swaps in the lanes where its top word holds
+     * a 1 and its bottom word a 0.
+     *
+     * @param inputs a set of packed input sequences, or null for all binary sequences
+     * @return the number of swaps of each comparator, in the order of this network
+     */
+    public long[] getSwapCounts(SequenceSet inputs) {
+        BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compile());
+        long[] inLayerOrder = inputs == null ? evaluator.countSwaps()
+                : evaluator.countSwaps(inputs);
+        int[] positions = layerPositions();
+        long[] swaps = new long[list.size()];
+        for (int k = 0; k < swaps.length; k++) {
+            swaps[k] = inLayerOrder[positions[k]];
+        }
+        return swaps;
+    }
+
+    /**
+     * Evaluates this network on all binary sequences and counts, in the same bit-sliced sweep, the
+     * inputs on which each comparator swaps, so that the outputs and the redundant comparators
+     * are found at the cost of a single sweep.
+     *
+     * @param swaps receives the number of swaps of each comparator, in the order of this network
+     * @return the set of all unsorted outputs produced by this network
+     */
+    public SequenceSet operateOnAllCountingSwaps(long[] swaps) {
+        long start = Metrics.start();
+        long[] inLayerOrder = new long[list.size()];
+        SequenceSet unsortedOutputs = new BitSlicedEvaluator(compile())
+                .operateOnAllCountingSwaps(inLayerOrder);
+        int[] positions = layerPositions();
+        for (int k = 0; k < inLayerOrder.length; k++) {
+            swaps[k] = inLayerOrder[positions[k]];
+        }
+        Metrics.recordEvaluation(Metrics.Timer.FULL_SWEEP, start, 1L << NUM_WIRES, size());
+        return unsortedOutputs;
+    }
+
+    /**
+     * Finds the comparators that never swap on a set of inputs. Such comparators do not affect the
+     * outputs on those inputs, and all of them can be removed at once.
+     *
+     * @param inputs a set of packed input sequences, or null for all binary sequences
+     * @return the indices of the redundant comparators, in increasing order
+     */
+    public int[] getRedundantComparators(SequenceSet inputs) {
+        long[] swaps = getSwapCounts(inputs);
+        return IntStream.range(0, swaps.length).filter((k) -> swaps[k] == 0).toArray();
+    }
+
+    /**
+     * Returns a copy of this network without the comparators that never swap on a set of inputs.
+     * The copy produces the same output as this network on every input of the set.
+     *
+     * @param inputs a set of packed input sequences, or null for all binary sequences
+     * @return the pruned network
+     */
+    public Network withoutRedundantComparators(SequenceSet inputs) {
+        return withoutRedundantComparators(getSwapCounts(inputs));
+    }
+
+    /**
+     * Returns a copy of this network without the comparators whose swap counts are 0, e.g. as
+     * counted by {@link #operateOnAllCountingSwaps(long[])}.
+     *
+     * @param swaps the number of swaps of each comparator, in the order of this network
+     * @return the pruned network
+     */
+    public Network withoutRedundantComparators(long[] swaps) {
+        Network pruned = new Network(NUM_WIRES);
+        for (int k = 0; k < swaps.length; k++) {
+            if (swaps[k] > 0) {
+                pruned.addComparator(list.get(k).getTop(), list.get(k).getBottom());
+            }
+        }
+        return pruned;
+    }
+
+    // Returns the position of each comparator in layer order, as in the compiled form. Layers are
+    // built by appending comparators in order, so within a layer they keep their order.
+    private int[] layerPositions() {
+        validateLayers();
+        int[] depth = new int[list.size()];
+        int[] reached = new int[NUM_WIRES];
+        int[] start = new int[layers.size() + 1];
+        for (int k = 0; k < depth.length; k++) {
+            Comparator comp = list.get(k);
+            depth[k] = Math.max(reached[comp.getTop()], reached[comp.getBottom()]);
+            reached[comp.getTop()] = depth[k] + 1;
+            reached[comp.getBottom()] = depth[k] + 1;
+            start[depth[k] + 1]++;
+        }
+        for (int d = 1; d < start.length; d++) {
+            start[d] += start[d - 1];
+        }
+        int[] positions = new int[depth.length];
+        for (int k = 0; k < depth.length; k++) {
+            positions[k] = start[depth[k]]++;
+        }
+        return positions;
+    }
+
+    /**
+     * Parses a network in the text format of {@link #toString()}: comparators separated by
+     * whitespace, each given as the indices of its wires joined by a hyphen, e.g. "03-10".
+     *
+     * @param text the comparators of the network
+     * @param n the number of wires
+     * @return the network
+     * @throws IllegalArgumentException if the text is not a list of comparators on n wires
+     */
+    public static Network valueOf(String text, int n) {
+        Network network = new Network(n);
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return network;
+        }
+        for (String token : trimmed.split("\\s+")) {
+            int dash = token.indexOf('-');
+            int top;
+            int bottom;
+            try {
+                top = Integer.parseInt(token.substring(0, Math.max(dash, 0)));
+                bottom = Integer.parseInt(token.substring(dash + 1));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Not a comparator: " + token);
+            }
+            if (top < 0 || bottom < 0 || top >= n || bottom >= n || top == bottom) {
+                throw new IllegalArgumentException("Not a comparator on " + n + " wires: " + token);
+            }
+            network.addComparator(top, bottom);
+        }
+        return network;
+    }
+
     /**
      * @return the comparisons in this network
      */
@@ -0,0 +1,47 @@
+package hardware;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads networks one after another from a stream written by a {@link NetworkWriter}.
+ *
+ * @author Drue Coles
+ */
+public class NetworkReader implements Closeable {
+
+    private final DataInputStream in;
+
+    /**
+     * Creates a reader and checks the file header.
+     *
+     * @param in the stream to read from, which is closed with this reader
+     * @throws IOException if the header cannot be read or is not that of a file of networks
+     */
+    public NetworkReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        BinaryFormat.readHeader(this.in, BinaryFormat.NETWORKS);
+    }
+
+    /**
+     * Reads the next network.
+     *
+     * @return the network, or null at the end of the stream
+     * @throws IOException if the stream cannot be read or holds a malformed record
+     */
+    public Network read() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        return BinaryFormat.readNetwork(in, first);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
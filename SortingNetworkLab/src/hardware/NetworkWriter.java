@@ -0,0 +1,55 @@
+package hardware;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes networks one after another to a stream in the binary format of {@link BinaryFormat}.
+ *
+ * @author Drue Coles
+ */
+public class NetworkWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final boolean withLayers;
+
+    /**
+     * Creates a writer and writes the file header.
+     *
+     * @param out the stream to write to, which is closed with this writer
+     * @param withLayers whether to record the layer boundaries of each network
+     * @throws IOException if the header cannot be written
+     */
+    public NetworkWriter(OutputStream out, boolean withLayers) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.withLayers = withLayers;
+        BinaryFormat.writeHeader(this.out, BinaryFormat.NETWORKS);
+    }
+
+    /**
+     * Appends a network to the stream.
+     *
+     * @param network the network to write
+     * @throws IOException if the network cannot be written
+     */
+    public void write(Network network) throws IOException {
+        BinaryFormat.writeNetwork(out, network, withLayers);
+    }
+
+    /**
+     * Writes any buffered networks to the underlying stream.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,145 @@
+package hardware;
+
+/**
+ * A collection of static methods for binary sequences of length at most 64 packed into the bits
+ * of a long. Packing follows the numbering used by {@link BinarySequence#increment()}: the value
+ * on wire 0 is the most significant of the n bits and the value on wire n-1 is the least
+ * significant, so incrementing a sequence is the same as adding 1 to its packed form.
+ *
+ * Unlike {@link BinarySequence}, packed sequences need no allocation. The byte-per-bit
+ * representation remains available for networks on more than 64 wires.
+ *
+ * @author Drue Coles
+ */
+public final class PackedSequence {
+
+    /**
+     * The largest number of wires for which sequences can be packed into a long.
+     */
+    public static final int MAX_WIRES = 64;
+
+    private PackedSequence() {
+    }
+
+    /**
+     * @param n the length of the sequences
+     * @return a mask of the n low-order bits of a long
+     */
+    public static long mask(int n) {
+        return n >= MAX_WIRES ? -1L : (1L << n) - 1;
+    }
+
+    /**
+     * Returns the bit carried by a given wire.
+     *
+     * @param seq a packed sequence
+     * @param n the length of the sequence
+     * @param i a wire index
+     */
+    public static int get(long seq, int n, int i) {
+        return (int) ((seq >>> (n - 1 - i)) & 1);
+    }
+
+    /**
+     * Operates on two bits of a sequence by swapping them if necessary so that the first bit is
+     * smaller or equal to the second. No branches are taken.
+     *
+     * @param seq a packed sequence
+     * @param n the length of the sequence
+     * @param i index of first bit
+     * @param j index of second bit
+     * @return the resulting sequence
+     */
+    public static long sort(long seq, int n, int i, int j) {
+        int pi = n - 1 - i;
+        int pj = n - 1 - j;
+        long swap = (seq >>> pi) & ~(seq >>> pj) & 1;
+        return seq ^ ((swap << pi) | (swap << pj));
+    }
+
+    /**
+     * Returns true if the bits of a sequence are monotonically increasing. In packed form, a
+     * sorted sequence is a block of zeros followed by a block of low-order ones.
+     *
+     * @param seq a packed sequence
+     */
+    public static boolean isSorted(long seq) {
+        return (seq & (seq + 1)) == 0;
+    }
+
+    /**
+     * Interprets a sequence as a binary integer and adds 1, wrapping around to all zeros.
+     *
+     * @param seq a packed sequence
+     * @param n the length of the sequence
+     * @return the resulting sequence
+     */
+    public static long increment(long seq, int n) {
+        return (seq + 1) & mask(n);
+    }
+
+    /**
+     * Returns the next larger sequence with the same number of ones (Gosper's hack). Starting from
+     * {@code mask(w)} and stopping once a sequence exceeds {@code mask(n)} visits every sequence
+     * of length n and weight w in increasing order.
+     *
+     * @param seq a packed sequence with at least one 1 and fewer than 63 significant bits
+     * @return the next sequence of the same weight
+     */
+    public static long nextOfSameWeight(long seq) {
+        long lowest = seq & -seq;
+        long ripple = seq + lowest;
+        return (((ripple ^ seq) >>> 2) >>> Long.numberOfTrailingZeros(seq)) | ripple;
+    }
+
+    /**
+     * Reverses a sequence and complements every bit. A network whose comparators are symmetric
+     * under the reflection of wire i to wire n-1-i maps the reversed complement of an input to the
+     * reversed complement of its output, and the reversed complement of a sorted sequence is
+     * sorted.
+     *
+     * @param seq a packed sequence
+     * @param n the length of the sequence
+     * @return the reversed complement of the sequence
+     */
+    public static long reverseComplement(long seq, int n) {
+        return ~(Long.reverse(seq) >>> (MAX_WIRES - n)) & mask(n);
+    }
+
+    /**
+     * @param seq a packed sequence
+     * @return the number of ones in the sequence
+     */
+    public static int weight(long seq) {
+        return Long.bitCount(seq);
+    }
+
+    /**
+     * Returns the Hamming distance between two packed sequences.
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Compares two packed sequences of the same length in the order of
+     * {@link BinarySequence#compareTo(Object)}.
+     */
+    public static int compare(long a, long b) {
+        return Long.compareUnsigned(a, b);
+    }
+
+    /**
+     * Returns a string of bits denoting a packed sequence.
+     *
+     * @param seq a packed sequence
+     * @param n the length of the sequence
+     */
+    public static String toString(long seq, int n) {
+        char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            chars[i] = (char) ('0' + get(seq, n, i));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,54 @@
+package hardware;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A fork-join task that evaluates a network on a range of 64-input blocks of the input space.
+ * Ranges are split in half until they are small enough to evaluate directly. Each leaf collects
+ * its unsorted outputs in a set of its own, using a wire buffer of its own, and the sets are
+ * merged as the tasks are joined, so no locking is needed.
+ *
+ * @author Drue Coles
+ */
+@SuppressWarnings("serial") // tasks are never serialized, and the evaluator is not serializable
+class ParallelSweep extends RecursiveTask<SequenceSet> {
+
+    // number of blocks (of 64 inputs each) below which a range is evaluated by a single task
+    private static final long LEAF_BLOCKS = 256;
+
+    private final BitSlicedEvaluator evaluator;
+    private final long fromBlock;
+    private final long toBlock;
+
+    /**
+     * @param evaluator the evaluator of the network
+     * @param fromBlock the first block of the range (inclusive)
+     * @param toBlock the last block of the range (exclusive)
+     */
+    ParallelSweep(BitSlicedEvaluator evaluator, long fromBlock, long toBlock) {
+        this.evaluator = evaluator;
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+    }
+
+    @Override
+    protected SequenceSet compute() {
+        if (toBlock - fromBlock <= LEAF_BLOCKS) {
+            return evaluator.operateOnBlocks(fromBlock, toBlock);
+        }
+        long mid = (fromBlock + toBlock) >>> 1;
+        ParallelSweep left = new ParallelSweep(evaluator, fromBlock, mid);
+        ParallelSweep right = new ParallelSweep(evaluator, mid, toBlock);
+        left.fork();
+        SequenceSet rightOutputs = right.compute();
+        SequenceSet leftOutputs = left.join();
+
+        // Merge the smaller set into the larger one.
+        if (leftOutputs.size() < rightOutputs.size()) {
+            rightOutputs.addAll(leftOutputs);
+            return rightOutputs;
+        }
+        leftOutputs.addAll(rightOutputs);
+        return leftOutputs;
+    }
+}
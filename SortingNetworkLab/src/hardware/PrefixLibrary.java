@@ -0,0 +1,235 @@
+package hardware;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Known constructions of comparison networks on any number of wires, from which prefixes can be
+ * taken to be extended by hand, as the first 32 comparators of Green's network are on 16 wires.
+ * Each construction is defined on the next power of two at least the number of wires, and the
+ * comparators touching the extra wires are dropped. This is sound because the extra wires lie
+ * below the others and can be taken to carry 1s, which no comparator moves, so a sorting network
+ * stays a sorting network.
+ *
+ * A construction is built as a list of layers in the format of {@link Network#getLayers()}, and a
+ * prefix is a number of its first layers.
+ *
+ * @author Drue Coles
+ */
+public final class PrefixLibrary {
+
+    /**
+     * The smallest number of wires of a construction.
+     */
+    public static final int MIN_WIRES = 2;
+
+    /**
+     * The largest number of wires of a construction.
+     */
+    public static final int MAX_WIRES = 32;
+
+    /**
+     * The constructions in the library.
+     */
+    public enum Construction {
+        /**
+         * the first stage of Green's network: a comparator along every edge of a hypercube, one
+         * dimension per layer, which on 16 wires is the Green filter
+         */
+        GREEN("Green filter"),
+        /**
+         * Batcher's odd-even merge sort
+         */
+        ODD_EVEN_MERGE("Batcher odd-even merge"),
+        /**
+         * Batcher's bitonic sort, with every comparator putting the smaller value on top
+         */
+        BITONIC("Bitonic"),
+        /**
+         * Parberry's pairwise sorting network, whose first stage is that of Green's network
+         */
+        PAIRWISE("Pairwise");
+
+        private final String title;
+
+        Construction(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private PrefixLibrary() {
+    }
+
+    /**
+     * Returns all layers of a construction. The constructions other than {@link Construction#GREEN}
+     * are sorting networks.
+     *
+     * @param construction the construction
+     * @param n the number of wires
+     * @return the layers, in order
+     */
+    public static List<int[][]> getLayers(Construction construction, int n) {
+        return restrict(construct(construction, n), n);
+    }
+
+    // Builds a construction on the next power of two at least n.
+    private static ArrayList<ArrayList<int[]>> construct(Construction construction, int n) {
+        checkWires(n);
+        int m = Integer.highestOneBit(n - 1) << 1;
+        ArrayList<ArrayList<int[]>> layers = new ArrayList<>();
+        switch (construction) {
+            case GREEN:
+                for (int d = 1; d < m; d *= 2) {
+                    ArrayList<int[]> layer = new ArrayList<>();
+                    for (int i = 0; i < m; i++) {
+                        if ((i & d) == 0) {
+                            layer.add(new int[] {i, i + d});
+                        }
+                    }
+                    layers.add(layer);
+                }
+                break;
+            case ODD_EVEN_MERGE:
+                for (int p = 1; p < m; p *= 2) {
+                    for (int k = p; k >= 1; k /= 2) {
+                        ArrayList<int[]> layer = new ArrayList<>();
+                        for (int j = k % p; j + k < m; j += 2 * k) {
+                            for (int i = 0; i < k && i + j + k < m; i++) {
+                                if ((i + j) / (2 * p) == (i + j + k) / (2 * p)) {
+                                    layer.add(new int[] {i + j, i + j + k});
+                                }
+                            }
+                        }
+                        layers.add(layer);
+                    }
+                }
+                break;
+            case BITONIC:
+                for (int p = 1; p < m; p *= 2) {
+                    // The first layer of each merge compares the two halves of a block in reverse,
+                    // which merges two ascending sequences without descending comparators.
+                    ArrayList<int[]> flip = new ArrayList<>();
+                    for (int b = 0; b < m; b += 2 * p) {
+                        for (int i = 0; i < p; i++) {
+                            flip.add(new int[] {b + i, b + 2 * p - 1 - i});
+                        }
+                    }
+                    layers.add(flip);
+                    for (int k = p / 2; k >= 1; k /= 2) {
+                        layers.add(halfCleaner(m, k));
+                    }
+                }
+                break;
+            case PAIRWISE:
+                for (int a = 1; a < m; a *= 2) {
+                    layers.add(halfCleaner(m, a));
+                }
+                for (int a = m / 4, e = 1; a > 0; a /= 2, e = 2 * e + 1) {
+                    for (int d = e; d > 0; d /= 2) {
+                        ArrayList<int[]> layer = new ArrayList<>();
+                        for (int b = (d + 1) * a, c = 0; b < m; b++) {
+                            layer.add(new int[] {b - d * a, b});
+                            if (++c >= a) {
+                                c = 0;
+                                b += a;
+                            }
+                        }
+                        layers.add(layer);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown construction " + construction);
+        }
+        return layers;
+    }
+
+    /**
+     * Returns the number of layers that {@link #getPrefix(Construction, int)} takes from a
+     * construction: all layers of the Green filter, and all but the final merge of the sorting
+     * networks, which leaves the two halves of the wires sorted by Batcher's constructions and
+     * both stages but the last group of layers of the pairwise network. Layers are counted on the
+     * next power of two at least n, before the comparators on extra wires are dropped.
+     *
+     * @param construction the construction
+     * @param n the number of wires
+     * @return the depth of the default prefix
+     */
+    public static int getDefaultDepth(Construction construction, int n) {
+        int depth = construct(construction, n).size();
+        int log = 32 - Integer.numberOfLeadingZeros(n - 1); // layers of the final merge
+        switch (construction) {
+            case GREEN:
+                return depth;
+            case PAIRWISE:
+                return Math.max(log, depth - (log - 1));
+            default:
+                return Math.max(0, depth - log);
+        }
+    }
+
+    /**
+     * @param construction the construction
+     * @param n the number of wires
+     * @return the default prefix of the construction
+     * @see #getDefaultDepth(Construction, int)
+     */
+    public static Network getPrefix(Construction construction, int n) {
+        return getPrefix(construction, n, getDefaultDepth(construction, n));
+    }
+
+    /**
+     * @param construction the construction
+     * @param n the number of wires
+     * @param depth the number of layers to take, counted as in
+     * {@link #getDefaultDepth(Construction, int)}
+     * @return the network of the first layers of the construction, in layer order
+     */
+    public static Network getPrefix(Construction construction, int n, int depth) {
+        ArrayList<ArrayList<int[]>> all = construct(construction, n);
+        List<int[][]> layers = restrict(
+                new ArrayList<>(all.subList(0, Math.min(Math.max(depth, 0), all.size()))), n);
+        Network network = new Network(n);
+        for (int[][] layer : layers) {
+            for (int[] pair : layer) {
+                network.addComparator(pair[0], pair[1]);
+            }
+        }
+        return network;
+    }
+
+    // Comparators (i, i + k) for every i with a 0 in the bit of k.
+    private static ArrayList<int[]> halfCleaner(int m, int k) {
+        ArrayList<int[]> layer = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            if ((i & k) == 0) {
+                layer.add(new int[] {i, i + k});
+            }
+        }
+        return layer;
+    }
+
+    // Drops the comparators that touch wires from n on, and the layers left empty.
+    private static List<int[][]> restrict(ArrayList<ArrayList<int[]>> layers, int n) {
+        ArrayList<int[][]> result = new ArrayList<>();
+        for (ArrayList<int[]> layer : layers) {
+            layer.removeIf((pair) -> pair[1] >= n);
+            if (!layer.isEmpty()) {
+                result.add(layer.toArray(new int[layer.size()][]));
+            }
+        }
+        return result;
+    }
+
+    private static void checkWires(int n) {
+        if (n < MIN_WIRES || n > MAX_WIRES) {
+            throw new IllegalArgumentException("Prefixes have from " + MIN_WIRES + " to "
+                    + MAX_WIRES + " wires, not " + n);
+        }
+    }
+}
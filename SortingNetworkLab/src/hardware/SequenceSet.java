@@ -0,0 +1,315 @@
+package hardware;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of packed binary sequences of a fixed length, stored in an open-addressing hash table of
+ * longs. Adding and testing sequences does not allocate, and each element costs 8 to 16 bytes
+ * rather than a {@link BinarySequence}, its array and a hash table entry.
+ *
+ * @author Drue Coles
+ * @see PackedSequence
+ */
+public class SequenceSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // The largest power of two that is a valid array length. A table at this capacity is filled
+    // beyond half, up to one empty slot, which every probe needs to end.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // The all-zeros sequence marks empty slots of the table, so it is tracked separately.
+    private static final long EMPTY = 0L;
+
+    private final int numWires;
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+    private boolean readOnly;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param n the length of the sequences in the set
+     */
+    public SequenceSet(int n) {
+        this(n, MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty set with room for a given number of sequences before the table grows.
+     *
+     * @param n the length of the sequences in the set
+     * @param expectedSize the expected number of sequences, which is clamped to the largest
+     * table
+     */
+    public SequenceSet(int n, int expectedSize) {
+        if (n < 1 || n > PackedSequence.MAX_WIRES) {
+            throw new IllegalArgumentException("Cannot pack sequences of length " + n);
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative expected size " + expectedSize);
+        }
+        numWires = n;
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * Creates a set holding the packed forms of some binary sequences.
+     *
+     * @param n the length of the sequences
+     * @param set a set of binary sequences of length n
+     */
+    public static SequenceSet of(int n, Set<BinarySequence> set) {
+        SequenceSet packed = new SequenceSet(n, set.size());
+        set.stream().forEach((seq) -> {
+            packed.add(seq.toLong());
+        });
+        return packed;
+    }
+
+    /**
+     * @return the length of the sequences in this set
+     */
+    public int getNumberOfWires() {
+        return numWires;
+    }
+
+    /**
+     * @return the number of sequences in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if this set contains no sequences
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return true if sequences can no longer be added to this set
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Makes this set read-only, so that it can be shared: a later call to {@link #add(long)} or
+     * {@link #addAll(SequenceSet)} throws an exception.
+     *
+     * @return this set
+     */
+    SequenceSet makeReadOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    /**
+     * Adds a sequence to this set.
+     *
+     * @param seq a packed sequence
+     * @return true if the sequence was not already in the set
+     * @throws IllegalStateException if the set is new to the sequence but the largest table is
+     * full
+     * @throws UnsupportedOperationException if this set is read-only
+     */
+    public boolean add(long seq) {
+        checkWritable();
+        if (seq == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int slot = hash(seq) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == seq) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int entries = containsZero ? size - 1 : size;
+        if (entries + 2 > table.length) {
+            throw new IllegalStateException("A set holds at most " + (MAX_CAPACITY - 1)
+                    + " nonzero sequences");
+        }
+        table[slot] = seq;
+        size++;
+        if (2L * (entries + 1) > table.length && table.length < MAX_CAPACITY) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Adds every sequence of another set to this set.
+     *
+     * @param other a set of sequences of the same length
+     * @throws UnsupportedOperationException if this set is read-only
+     */
+    public void addAll(SequenceSet other) {
+        checkWritable();
+        other.forEach(this::add);
+    }
+
+    /**
+     * @param seq a packed sequence
+     * @return true if the sequence is in this set
+     */
+    public boolean contains(long seq) {
+        if (seq == EMPTY) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int slot = hash(seq) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == seq) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Passes every sequence in this set to a consumer, in no particular order.
+     *
+     * @param action the consumer
+     */
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (long seq : table) {
+            if (seq != EMPTY) {
+                action.accept(seq);
+            }
+        }
+    }
+
+    /**
+     * @return the sequences in this set in increasing order
+     */
+    public long[] toArray() {
+        long[] array = new long[size];
+        int k = 0;
+        if (containsZero) {
+            array[k++] = EMPTY;
+        }
+        for (long seq : table) {
+            if (seq != EMPTY) {
+                array[k++] = seq;
+            }
+        }
+        // Sequences are compared as unsigned numbers, so flip the sign bit around a signed sort.
+        for (int i = 0; i < array.length; i++) {
+            array[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(array);
+        for (int i = 0; i < array.length; i++) {
+            array[i] ^= Long.MIN_VALUE;
+        }
+        return array;
+    }
+
+    /**
+     * @return the sequences in this set as binary sequences
+     */
+    public Set<BinarySequence> toBinarySequences() {
+        HashSet<BinarySequence> set = new HashSet<>();
+        forEach((seq) -> {
+            set.add(new BinarySequence(seq, numWires));
+        });
+        return set;
+    }
+
+    /**
+     * Returns true if another set contains the same sequences of the same length.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SequenceSet)) {
+            return false;
+        }
+        SequenceSet other = (SequenceSet) o;
+        if (numWires != other.numWires || size != other.size) {
+            return false;
+        }
+        if (containsZero && !other.containsZero) {
+            return false;
+        }
+        for (long seq : table) {
+            if (seq != EMPTY && !other.contains(seq)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code that does not depend on the layout of the table.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7 * 79 + numWires;
+        for (long seq : table) {
+            hash += hash(seq);
+        }
+        return containsZero ? hash + 1 : hash;
+    }
+
+    /**
+     * Returns the sequences of this set separated by spaces, in increasing order.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * (numWires + 1));
+        for (long seq : toArray()) {
+            sb.append(PackedSequence.toString(seq, numWires)).append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("The set is read-only");
+        }
+    }
+
+    private void rehash(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Cannot grow the table to " + capacity + " slots");
+        }
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long seq : old) {
+            if (seq != EMPTY) {
+                int slot = hash(seq) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = seq;
+            }
+        }
+    }
+
+    // Fibonacci hashing spreads the low-order bits of nearby sequences across the table.
+    private static int hash(long seq) {
+        long h = seq * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
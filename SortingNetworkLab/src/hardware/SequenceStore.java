@@ -0,0 +1,335 @@
+package hardware;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * A read-only set of packed binary sequences kept in a file and served through memory-mapped
+ * buffers, so that sets of many millions of outputs can be shared between runs and processes
+ * without being loaded onto the heap.
+ *
+ * The file starts with a header of 24 bytes: the magic number, the format version, the number of
+ * wires, a reserved int that is 0, and the number of sequences, as four ints and a long in
+ * big-endian order. The sequences follow as longs in increasing unsigned order, without
+ * duplicates. Files larger than a single mapping are mapped in segments.
+ *
+ * @author Drue Coles
+ */
+public class SequenceStore implements Closeable {
+
+    private static final int MAGIC = 0x534E5353; // "SNSS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    // sequences per mapped segment (1 GiB)
+    private static final int SEGMENT_SEQUENCES = 1 << 27;
+
+    // sequences sorted on the heap at a time by a streaming write (32 MiB)
+    private static final int CHUNK_SEQUENCES = 1 << 22;
+
+    private final FileChannel channel;
+    private final int numWires;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    private SequenceStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Not a sequence store: file too short.");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a sequence store: bad magic number.");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported sequence store version " + version + ".");
+        }
+        numWires = header.getInt();
+        header.getInt(); // reserved
+        size = header.getLong();
+        if (numWires < 1 || numWires > PackedSequence.MAX_WIRES || size < 0
+                || channel.size() < HEADER_BYTES + 8 * size) {
+            throw new IOException("Corrupt sequence store header.");
+        }
+
+        int numSegments = (int) ((size + SEGMENT_SEQUENCES - 1) / SEGMENT_SEQUENCES);
+        segments = new MappedByteBuffer[numSegments];
+        for (int k = 0; k < numSegments; k++) {
+            long first = (long) k * SEGMENT_SEQUENCES;
+            long count = Math.min(SEGMENT_SEQUENCES, size - first);
+            segments[k] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + 8 * first, 8 * count);
+        }
+    }
+
+    /**
+     * Opens a store written by {@link #write(Path, SequenceSet)} or
+     * {@link #write(Path, int, LongStream)}.
+     *
+     * @param path the file of the store
+     * @return the store, which should be closed when no longer needed
+     * @throws IOException if the file cannot be read or is not a sequence store
+     */
+    public static SequenceStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SequenceStore(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a set of sequences to a file in the format of a store, replacing the file if it
+     * exists. The set is already on the heap; {@link #write(Path, int, LongStream)} writes
+     * sequences that are not.
+     *
+     * @param path the file to write
+     * @param set the sequences to store
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, SequenceSet set) throws IOException {
+        long[] sorted = set.toArray();
+        try (DataOutputStream out = newOutput(path)) {
+            writeHeader(out, set.getNumberOfWires(), sorted.length);
+            for (long seq : sorted) {
+                out.writeLong(seq);
+            }
+        }
+    }
+
+    /**
+     * Writes a stream of sequences, in any order and with any duplicates, to a file in the format
+     * of a store, replacing the file if it exists. At most a fixed chunk of sequences is on the
+     * heap at a time: each chunk is sorted, rid of duplicates and written to a temporary file
+     * next to the store, and the chunks are then merged into the store. This writes the unsorted
+     * outputs of a network too large to collect in a {@link SequenceSet}, e.g.
+     * {@code write(path, n, network.unsortedOutputs())}.
+     *
+     * @param path the file to write
+     * @param n the length of the sequences
+     * @param sequences the packed sequences to store, which the write consumes
+     * @return the number of distinct sequences stored
+     * @throws IOException if the file or a temporary file cannot be written
+     */
+    public static long write(Path path, int n, LongStream sequences) throws IOException {
+        if (n < 1 || n > PackedSequence.MAX_WIRES) {
+            throw new IllegalArgumentException("Cannot pack sequences of length " + n);
+        }
+        Path dir = path.toAbsolutePath().getParent();
+        ArrayList<Path> runs = new ArrayList<>();
+        try {
+            PrimitiveIterator.OfLong it = sequences.iterator();
+            long[] chunk = new long[CHUNK_SEQUENCES];
+            int length = 0;
+            while (it.hasNext()) {
+                chunk[length++] = it.nextLong();
+                if (length == chunk.length || !it.hasNext()) {
+                    length = sortDistinct(chunk, length);
+                    Path run = Files.createTempFile(dir, "run", ".tmp");
+                    runs.add(run);
+                    try (DataOutputStream out = newOutput(run)) {
+                        for (int k = 0; k < length; k++) {
+                            out.writeLong(chunk[k]);
+                        }
+                    }
+                    length = 0;
+                }
+            }
+            long size = merge(runs, path, n);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ByteBuffer count = ByteBuffer.allocate(8).putLong(0, size);
+                channel.write(count, HEADER_BYTES - 8);
+            }
+            return size;
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    // Sorts the first length sequences of an array in increasing unsigned order and moves the
+    // distinct ones to the front, returning their number.
+    private static int sortDistinct(long[] array, int length) {
+        for (int i = 0; i < length; i++) {
+            array[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(array, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || array[i] != array[distinct - 1]) {
+                array[distinct++] = array[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            array[i] ^= Long.MIN_VALUE;
+        }
+        return distinct;
+    }
+
+    // Merges sorted runs of distinct sequences into a store, dropping sequences in several runs,
+    // and returns the number of sequences written. The header is written with a count of 0.
+    private static long merge(ArrayList<Path> runs, Path path, int n) throws IOException {
+        ArrayList<DataInputStream> inputs = new ArrayList<>();
+        try (DataOutputStream out = newOutput(path)) {
+            writeHeader(out, n, 0);
+            // Each entry holds the next sequence of a run and the index of the run.
+            PriorityQueue<long[]> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                    (a, b) -> PackedSequence.compare(a[0], b[0]));
+            for (Path run : runs) {
+                InputStream file = Files.newInputStream(run);
+                inputs.add(new DataInputStream(new BufferedInputStream(file)));
+                advance(inputs.size() - 1, inputs, heads, new long[2]);
+            }
+            long size = 0;
+            long last = 0;
+            while (!heads.isEmpty()) {
+                long[] head = heads.poll();
+                if (size == 0 || head[0] != last) {
+                    out.writeLong(head[0]);
+                    last = head[0];
+                    size++;
+                }
+                advance((int) head[1], inputs, heads, head);
+            }
+            return size;
+        } finally {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+
+    // Reads the next sequence of a run into an entry and queues it, unless the run is exhausted.
+    private static void advance(int k, ArrayList<DataInputStream> inputs,
+            PriorityQueue<long[]> heads, long[] entry) throws IOException {
+        try {
+            entry[0] = inputs.get(k).readLong();
+        } catch (EOFException e) {
+            return;
+        }
+        entry[1] = k;
+        heads.add(entry);
+    }
+
+    private static DataOutputStream newOutput(Path path) throws IOException {
+        OutputStream file = Files.newOutputStream(path);
+        return new DataOutputStream(new BufferedOutputStream(file));
+    }
+
+    private static void writeHeader(DataOutputStream out, int n, long size) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(n);
+        out.writeInt(0); // reserved
+        out.writeLong(size);
+    }
+
+    /**
+     * @return the length of the sequences in this store
+     */
+    public int getNumberOfWires() {
+        return numWires;
+    }
+
+    /**
+     * @return the number of sequences in this store
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return true if this store holds no sequences
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the sequence at a position in increasing order.
+     *
+     * @param index a position from 0 to size() - 1
+     */
+    public long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of store of size " + size);
+        }
+        MappedByteBuffer segment = segments[(int) (index / SEGMENT_SEQUENCES)];
+        return segment.getLong(8 * (int) (index % SEGMENT_SEQUENCES));
+    }
+
+    /**
+     * Tests whether this store holds a sequence, by binary search of the file.
+     *
+     * @param seq a packed sequence
+     */
+    public boolean contains(long seq) {
+        long low = 0;
+        long high = size - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int c = PackedSequence.compare(get(mid), seq);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes every sequence in this store to a consumer, in increasing order. Each segment is
+     * read sequentially, so the operating system can read ahead and drop pages already read.
+     *
+     * @param action the consumer
+     */
+    public void forEach(LongConsumer action) {
+        for (MappedByteBuffer segment : segments) {
+            // A duplicate has a position of its own, so stores can be read by several threads.
+            ByteBuffer buffer = segment.duplicate();
+            while (buffer.hasRemaining()) {
+                action.accept(buffer.getLong());
+            }
+        }
+    }
+
+    /**
+     * Closes the file of this store. The mappings themselves are released by the garbage
+     * collector, so the store must not be used after it is closed.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,63 @@
+package hardware;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+
+/**
+ * A spliterator over the unsorted outputs of a network on a range of 64-input blocks of the
+ * input space. Blocks are evaluated only as outputs are requested, so a stream built on it does
+ * no more work than its terminal operation needs. The range is split in half for parallel
+ * streams. An output produced by several inputs is reported once for each of them.
+ *
+ * @author Drue Coles
+ */
+class UnsortedOutputSpliterator extends Spliterators.AbstractLongSpliterator {
+
+    // number of blocks below which a range is not split
+    private static final long MIN_SPLIT_BLOCKS = 64;
+
+    private final BitSlicedEvaluator evaluator;
+    private final long[] wires;
+    private final long toBlock;
+    private long nextBlock;
+    private long pending; // lanes of the current block not yet reported
+
+    /**
+     * @param evaluator the evaluator of the network
+     * @param fromBlock the first block of the range (inclusive)
+     * @param toBlock the last block of the range (exclusive)
+     */
+    UnsortedOutputSpliterator(BitSlicedEvaluator evaluator, long fromBlock, long toBlock) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        this.evaluator = evaluator;
+        this.wires = new long[evaluator.getNumberOfWires()];
+        this.nextBlock = fromBlock;
+        this.toBlock = toBlock;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        while (pending == 0) {
+            if (nextBlock >= toBlock) {
+                return false;
+            }
+            pending = evaluator.operateOnBlock(nextBlock++, wires);
+        }
+        int lane = Long.numberOfTrailingZeros(pending);
+        pending &= pending - 1;
+        action.accept(evaluator.extract(wires, lane));
+        return true;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        if (pending != 0 || toBlock - nextBlock < MIN_SPLIT_BLOCKS) {
+            return null;
+        }
+        long mid = (nextBlock + toBlock) >>> 1;
+        UnsortedOutputSpliterator prefix = new UnsortedOutputSpliterator(evaluator, nextBlock, mid);
+        nextBlock = mid;
+        return prefix;
+    }
+}
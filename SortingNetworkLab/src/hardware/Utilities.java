@@ -1,6 +1,9 @@
 package hardware;
 
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -31,6 +34,21 @@ public class Utilities {
         layers.add(new int[][] {{6, 14}});
         layers.add(new int[][] {{7, 15}});
     }
+
+    // the number of networks whose outputs are cached
+    private static final int CACHE_SIZE = 4;
+
+    // Unsorted outputs of fixed networks such as the Green filter, keyed by the text of the network
+    // so that an entry is never used for a network that has since changed. The least recently used
+    // entry is dropped beyond CACHE_SIZE, and the sets are softly held, since a prefix on 32 wires
+    // can have tens of millions of outputs.
+    private static final Map<String, SoftReference<SequenceSet>> outputCache =
+            new LinkedHashMap<String, SoftReference<SequenceSet>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<SequenceSet>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
         
     /**
      * Returns the comparators at a given depth in the Green filter (i.e., the first 32 comparisons
@@ -54,6 +72,18 @@ public class Utilities {
      * @return the diameter (maximum pairwise distance of two sequences) of the set
      */
     public static int diameter(Set<BinarySequence> set) {
+        if (set.isEmpty()) {
+            return 0;
+        }
+        int n = set.iterator().next().length();
+        if (n <= PackedSequence.MAX_WIRES) {
+            long[] packed = new long[set.size()];
+            int k = 0;
+            for (BinarySequence seq : set) {
+                packed[k++] = seq.toLong();
+            }
+            return diameter(packed, n);
+        }
         int maxDistance = 0;
         for (BinarySequence x : set) {
             for (BinarySequence y : set) {
@@ -65,10 +95,90 @@ public class Utilities {
         }
         return maxDistance; 
     }
-    
+
+    /**
+     * @param set an array of distinct packed binary sequences
+     * @return the diameter (maximum pairwise distance of two sequences) of the set
+     * @see PackedSequence
+     */
+    public static int diameter(long[] set) {
+        return diameter(set, PackedSequence.MAX_WIRES);
+    }
+
+    /**
+     * Computes the diameter of a set of packed sequences by comparing sequences bucketed by
+     * weight, in decreasing order of the largest distance two buckets allow, and stopping once no
+     * remaining pair of buckets can increase the result.
+     *
+     * @param set an array of distinct packed binary sequences
+     * @param n the length of the sequences
+     * @return the diameter (maximum pairwise distance of two sequences) of the set
+     */
+    public static int diameter(long[] set, int n) {
+        return Diameter.of(set, n, false);
+    }
+
+    /**
+     * @param set a set of packed binary sequences
+     * @return the diameter (maximum pairwise distance of two sequences) of the set
+     */
+    public static int diameter(SequenceSet set) {
+        return diameter(set.toArray(), set.getNumberOfWires());
+    }
+
+    /**
+     * Computes the diameter of a large set of packed sequences, comparing large buckets of
+     * sequences on all cores. The result is the same as that of {@link #diameter(long[], int)}.
+     *
+     * @param set an array of distinct packed binary sequences
+     * @param n the length of the sequences
+     * @return the diameter (maximum pairwise distance of two sequences) of the set
+     */
+    public static int diameterParallel(long[] set, int n) {
+        return Diameter.of(set, n, true);
+    }
+
+    /**
+     * Counts, for every comparator that could be appended to a network, how many unsorted outputs
+     * would remain. All candidates are counted in a single pass over the set: a comparator (i, j)
+     * only changes the sequences with a 1 on wire i and a 0 on wire j, and such a sequence no
+     * longer counts once swapped if it becomes sorted or equal to another sequence of the set,
+     * which the comparator leaves unchanged. The count for (i, j) is therefore the size of the set
+     * less the number of those sequences.
+     *
+     * @param set the distinct unsorted outputs of a network
+     * @return an n-by-n array whose entry [i][j], with i less than j, is the number of distinct
+     * unsorted outputs after appending the comparator (i, j); other entries are 0
+     */
+    public static int[][] unsortedAfterEachComparator(SequenceSet set) {
+        int n = set.getNumberOfWires();
+        int[][] lost = new int[n][n];
+        set.forEach((seq) -> {
+            // A 1 at bit p lies on wire n - 1 - p, so the 0s below it lie on later wires.
+            for (long ones = seq; ones != 0; ones &= ones - 1) {
+                int p = Long.numberOfTrailingZeros(ones);
+                for (long zeros = ~seq & ((1L << p) - 1); zeros != 0; zeros &= zeros - 1) {
+                    int q = Long.numberOfTrailingZeros(zeros);
+                    long swapped = seq ^ (1L << p | 1L << q);
+                    if (PackedSequence.isSorted(swapped) || set.contains(swapped)) {
+                        lost[n - 1 - p][n - 1 - q]++;
+                    }
+                }
+            }
+        });
+        int[][] counts = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                counts[i][j] = set.size() - lost[i][j];
+            }
+        }
+        return counts;
+    }
+
     /**
      * @return a comparison network obtained by restricting Green's sorting network on 16 wires to
      * its first 32 comparisons
+     * @see PrefixLibrary.Construction#GREEN
      */
     public static Network getGreenFilter() {
         Network network = new Network(16);
@@ -88,4 +198,40 @@ public class Utilities {
         }
         return network;
     }
+
+    /**
+     * Returns the set of unsorted outputs of the Green filter. The set is cached and shared with
+     * other callers, so it is read-only.
+     */
+    public static SequenceSet getGreenFilterOutputs() {
+        return getCachedOutputs(getGreenFilter());
+    }
+
+    /**
+     * Returns the set of unsorted outputs produced by a network on all binary inputs. The set is
+     * computed with {@link Network#operateOnAllFastest()} and shared by later calls with an equal
+     * network while it stays among the few most recently used, so it is read-only.
+     *
+     * @param network a comparison network on at most 64 wires
+     * @see SequenceSet#isReadOnly()
+     */
+    public static SequenceSet getCachedOutputs(Network network) {
+        String key = network.getNumberOfWires() + ":" + network;
+        synchronized (outputCache) {
+            SoftReference<SequenceSet> ref = outputCache.get(key);
+            SequenceSet outputs = ref == null ? null : ref.get();
+            if (outputs != null) {
+                return outputs;
+            }
+        }
+        // Evaluate outside the lock, so that other networks can be looked up in the meantime. Two
+        // threads may evaluate the same network at once, and the later result is kept.
+        long start = Metrics.start();
+        SequenceSet outputs = network.operateOnAllFastest().makeReadOnly();
+        Metrics.record(Metrics.Timer.PREFIX_EVALUATION, start);
+        synchronized (outputCache) {
+            outputCache.put(key, new SoftReference<>(outputs));
+        }
+        return outputs;
+    }
 }
@@ -0,0 +1,95 @@
+package hardware;
+
+/**
+ * Evaluates a comparison network on all binary inputs one weight class at a time. A comparator
+ * never changes the number of ones in a sequence, so the unsorted outputs of the inputs of weight
+ * w all have weight w, and the results can be reported per class. Inputs of weight 0 and n are
+ * sorted and are skipped.
+ *
+ * If the network is symmetric under the reflection of wire i to wire n-1-i, the reversed
+ * complement of an input is mapped to the reversed complement of its output. The inputs of
+ * weight n-w are then the reversed complements of those of weight w, so only the classes up to
+ * n/2 are evaluated, and in the middle class only one input of each pair.
+ *
+ * @author Drue Coles
+ */
+final class WeightClassEvaluator {
+
+    private final int numWires;
+    private final CompiledNetwork network;
+    private final boolean symmetric;
+
+    /**
+     * @param network the compiled network to evaluate
+     * @param symmetric whether the network is symmetric under reflection
+     */
+    WeightClassEvaluator(CompiledNetwork network, boolean symmetric) {
+        int numWires = network.getNumberOfWires();
+        if (numWires < 1 || numWires > 62) {
+            throw new IllegalArgumentException("Weight-class evaluation requires 1 to 62 wires.");
+        }
+        this.numWires = numWires;
+        this.network = network;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Evaluates the network on all binary inputs.
+     *
+     * @return an array of n + 1 sets whose w-th element holds the unsorted outputs of weight w
+     */
+    SequenceSet[] operateOnAll() {
+        SequenceSet[] classes = new SequenceSet[numWires + 1];
+        classes[0] = new SequenceSet(numWires);
+        classes[numWires] = new SequenceSet(numWires);
+        for (int w = 1; w < numWires; w++) {
+            if (symmetric && 2 * w > numWires) {
+                classes[w] = reflect(classes[numWires - w]);
+            } else {
+                classes[w] = operateOnClass(w);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Evaluates the network on the inputs of one weight class.
+     *
+     * @param w the number of ones in the inputs, from 1 to n-1
+     * @return the unsorted outputs of the inputs of weight w
+     */
+    SequenceSet operateOnClass(int w) {
+        SequenceSet unsortedOutputs = new SequenceSet(numWires);
+        long last = PackedSequence.mask(numWires);
+        boolean middle = symmetric && 2 * w == numWires;
+        for (long input = PackedSequence.mask(w); input <= last;
+                input = PackedSequence.nextOfSameWeight(input)) {
+            if (middle) {
+                // Evaluate only the smaller of an input and its reversed complement.
+                long mirror = PackedSequence.reverseComplement(input, numWires);
+                if (input > mirror) {
+                    continue;
+                }
+                long output = network.operateOn(input);
+                if (!PackedSequence.isSorted(output)) {
+                    unsortedOutputs.add(output);
+                    unsortedOutputs.add(PackedSequence.reverseComplement(output, numWires));
+                }
+            } else {
+                long output = network.operateOn(input);
+                if (!PackedSequence.isSorted(output)) {
+                    unsortedOutputs.add(output);
+                }
+            }
+        }
+        return unsortedOutputs;
+    }
+
+    private SequenceSet reflect(SequenceSet set) {
+        SequenceSet reflected = new SequenceSet(numWires, set.size());
+        set.forEach((seq) -> {
+            reflected.add(PackedSequence.reverseComplement(seq, numWires));
+        });
+        return reflected;
+    }
+}
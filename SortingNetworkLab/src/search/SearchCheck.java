@@ -0,0 +1,83 @@
+package search;
+
+import hardware.Network;
+import hardware.PrefixLibrary;
+import hardware.PrefixLibrary.Construction;
+
+/**
+ * Checks from the command line that the pruning in a best-first search loses no suffixes. For the
+ * default prefix of each construction on small numbers of wires, and for each objective, a
+ * best-first search that runs to completion must find a suffix no worse than one found by
+ * iterative deepening, which prunes nothing but commuting orders. Cases in which iterative
+ * deepening runs out of time are skipped. Each case is printed, and the exit status is 1 if any
+ * case fails.
+ *
+ * @author Drue Coles
+ */
+public class SearchCheck {
+
+    private SearchCheck() {
+    }
+
+    /**
+     * @param args the largest number of wires (8 by default) and the time limit of each search in
+     * seconds (10 by default); both optional
+     */
+    public static void main(String[] args) {
+        int maxWires = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long timeLimit = (args.length > 1 ? Long.parseLong(args[1]) : 10) * 1000;
+        int failures = 0;
+        for (Construction construction : Construction.values()) {
+            for (int n = 4; n <= maxWires; n++) {
+                Network prefix = PrefixLibrary.getPrefix(construction, n);
+                for (SuffixSearch.Objective objective : SuffixSearch.Objective.values()) {
+                    SearchResult reference = run(prefix, SuffixSearch.Strategy.ITERATIVE_DEEPENING,
+                            objective, timeLimit);
+                    SearchResult result = run(prefix, SuffixSearch.Strategy.BEST_FIRST, objective,
+                            timeLimit);
+                    int expected = cost(reference, objective);
+                    int actual = cost(result, objective);
+                    String verdict;
+                    if (!reference.isComplete()) {
+                        verdict = "skipped";
+                    } else if (result.isComplete() && actual > expected) {
+                        verdict = "FAILED";
+                        failures++;
+                    } else {
+                        verdict = "ok";
+                    }
+                    System.out.println(construction + ", " + n + " wires, " + objective
+                            + ": iterative deepening " + format(expected) + ", best-first "
+                            + format(actual) + (result.isComplete() ? "" : " (incomplete)")
+                            + ", " + verdict);
+                }
+            }
+        }
+        if (failures > 0) {
+            System.err.println(failures + " cases failed");
+            System.exit(1);
+        }
+    }
+
+    private static SearchResult run(Network prefix, SuffixSearch.Strategy strategy,
+            SuffixSearch.Objective objective, long timeLimit) {
+        SuffixSearch search = new SuffixSearch(prefix, strategy, objective);
+        search.setTimeLimit(timeLimit);
+        return search.search();
+    }
+
+    /**
+     * Returns the cost of the suffixes found, or Integer.MAX_VALUE if none were found.
+     */
+    private static int cost(SearchResult result, SuffixSearch.Objective objective) {
+        if (result.getSuffixes().isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        Network suffix = result.getSuffixes().get(0);
+        return objective == SuffixSearch.Objective.DEPTH ? suffix.depth() : suffix.size();
+    }
+
+    private static String format(int cost) {
+        return cost == Integer.MAX_VALUE ? "none" : Integer.toString(cost);
+    }
+}
@@ -0,0 +1,85 @@
+package search;
+
+import hardware.Network;
+import hardware.SequenceSet;
+
+/**
+ * A partial suffix in a search: the comparators appended so far, as a chain of nodes, and the
+ * unsorted outputs that remain after them.
+ *
+ * @author Drue Coles
+ */
+final class SearchNode {
+
+    final SearchNode parent;
+    final int top; // wires of the last comparator, or -1 at the root
+    final int bottom;
+    final int length; // number of comparators in the suffix
+    final int depth; // depth of the suffix on its own
+    final int[] wireDepth; // number of layers of the suffix reaching each wire
+    final SequenceSet outputs;
+
+    /**
+     * Creates the root of a search, an empty suffix.
+     *
+     * @param outputs the unsorted outputs of the prefix
+     */
+    SearchNode(SequenceSet outputs) {
+        this(null, -1, -1, 0, new int[outputs.getNumberOfWires()], outputs);
+    }
+
+    private SearchNode(SearchNode parent, int top, int bottom, int length, int[] wireDepth,
+            SequenceSet outputs) {
+        this.parent = parent;
+        this.top = top;
+        this.bottom = bottom;
+        this.length = length;
+        this.wireDepth = wireDepth;
+        this.outputs = outputs;
+        int max = 0;
+        for (int d : wireDepth) {
+            max = Math.max(max, d);
+        }
+        this.depth = max;
+    }
+
+    /**
+     * Returns the node for this suffix extended by one comparator.
+     *
+     * @param i index of the top wire
+     * @param j index of the bottom wire
+     * @param outputs the unsorted outputs after the comparator
+     */
+    SearchNode extend(int i, int j, SequenceSet outputs) {
+        int[] d = wireDepth.clone();
+        int layer = Math.max(d[i], d[j]) + 1;
+        d[i] = layer;
+        d[j] = layer;
+        return new SearchNode(this, i, j, length + 1, d, outputs);
+    }
+
+    /**
+     * @param objective what the search minimizes
+     * @return the cost of this suffix under an objective
+     */
+    int cost(SuffixSearch.Objective objective) {
+        return objective == SuffixSearch.Objective.DEPTH ? depth : length;
+    }
+
+    /**
+     * @return the comparators of this suffix as a network
+     */
+    Network toNetwork() {
+        int[][] pairs = new int[length][];
+        SearchNode node = this;
+        for (int k = length - 1; k >= 0; k--) {
+            pairs[k] = new int[] {node.top, node.bottom};
+            node = node.parent;
+        }
+        Network network = new Network(wireDepth.length);
+        for (int[] pair : pairs) {
+            network.addComparator(pair[0], pair[1]);
+        }
+        return network;
+    }
+}
@@ -0,0 +1,71 @@
+package search;
+
+import hardware.Network;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a suffix search: the best suffixes found and statistics about the search.
+ *
+ * @author Drue Coles
+ */
+public class SearchResult {
+
+    private final List<Network> suffixes;
+    private final long nodesExpanded;
+    private final long elapsedMillis;
+    private final boolean complete;
+
+    SearchResult(List<Network> suffixes, long nodesExpanded, long elapsedMillis,
+            boolean complete) {
+        this.suffixes = Collections.unmodifiableList(suffixes);
+        this.nodesExpanded = nodesExpanded;
+        this.elapsedMillis = elapsedMillis;
+        this.complete = complete;
+    }
+
+    /**
+     * @return the best suffixes found that leave no unsorted outputs, all of equal cost
+     */
+    public List<Network> getSuffixes() {
+        return suffixes;
+    }
+
+    /**
+     * @return the number of nodes whose children were generated
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return the time spent searching in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return true if the search ran to completion rather than stopping at its time or node
+     * budget
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return a summary of the search followed by the suffixes found, one per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(suffixes.size()).append(" suffixes, ").append(nodesExpanded)
+                .append(" nodes expanded in ").append(elapsedMillis).append(" ms")
+                .append(complete ? "" : " (budget exhausted)");
+        suffixes.stream().forEach((suffix) -> {
+            sb.append('\n').append(suffix.size()).append(" comparators, depth ")
+                    .append(suffix.depth()).append(": ").append(suffix);
+        });
+        return sb.toString();
+    }
+}
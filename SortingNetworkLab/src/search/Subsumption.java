@@ -0,0 +1,202 @@
+package search;
+
+import hardware.PackedSequence;
+import hardware.SequenceSet;
+import java.util.Arrays;
+
+/**
+ * Tests whether the outputs of one network are, up to a permutation of the wires, among the
+ * outputs of another. If π(outputs(A)) ⊆ outputs(B) for some permutation π, then any suffix that
+ * extends B to a sorting network can be untangled into a suffix of the same length and depth
+ * that extends A, so B can be discarded in a search whenever A costs no more than B.
+ *
+ * The output sets of a search hold only the unsorted outputs; the n + 1 sorted sequences, which
+ * every network can produce, are accounted for here. Cheap necessary conditions are checked
+ * before any permutation is tried: the number of outputs of each weight, and for each weight the
+ * number of outputs with a one (and with a zero) on each wire, which restricts where each wire
+ * can be mapped.
+ *
+ * @author Drue Coles
+ */
+public final class Subsumption {
+
+    // upper bound on the permutations checked exactly before a test gives up
+    private static final int MAX_PERMUTATIONS = 10_000;
+
+    private Subsumption() {
+    }
+
+    /**
+     * Counts of an output set, including its sorted sequences, used to rule out subsumption
+     * without trying permutations.
+     */
+    public static final class Profile {
+
+        private final SequenceSet set;
+        private final int numWires;
+        private final int[] weightCounts; // number of outputs of each weight
+        private final int[][] ones; // ones[w][i]: outputs of weight w with a one on wire i
+
+        private Profile(SequenceSet set) {
+            this.set = set;
+            numWires = set.getNumberOfWires();
+            weightCounts = new int[numWires + 1];
+            ones = new int[numWires + 1][numWires];
+            for (int w = 0; w <= numWires; w++) {
+                count(PackedSequence.mask(w));
+            }
+            set.forEach(this::count);
+        }
+
+        private void count(long seq) {
+            int w = Long.bitCount(seq);
+            weightCounts[w]++;
+            for (int i = 0; i < numWires; i++) {
+                ones[w][i] += PackedSequence.get(seq, numWires, i);
+            }
+        }
+
+        /**
+         * @return the output set described by this profile
+         */
+        public SequenceSet getSet() {
+            return set;
+        }
+
+        private int zeros(int w, int i) {
+            return weightCounts[w] - ones[w][i];
+        }
+    }
+
+    /**
+     * Computes the profile of a set of unsorted outputs.
+     *
+     * @param set a set of unsorted outputs
+     */
+    public static Profile profile(SequenceSet set) {
+        return new Profile(set);
+    }
+
+    /**
+     * Returns true if some permutation of the wires maps every output of A, sorted or not, to an
+     * output of B. A result of false means either that no such permutation exists or that too
+     * many candidate permutations remained after filtering to check them all.
+     *
+     * @param a profile of the outputs of network A
+     * @param b profile of the outputs of network B
+     */
+    public static boolean subsumes(Profile a, Profile b) {
+        int n = a.numWires;
+        if (n != b.numWires || a.set.size() > b.set.size()) {
+            return false;
+        }
+        for (int w = 0; w <= n; w++) {
+            if (a.weightCounts[w] > b.weightCounts[w]) {
+                return false;
+            }
+        }
+
+        // Wire i of A can map to wire k of B only if, in every weight class, B has at least as
+        // many ones and at least as many zeros on wire k as A has on wire i.
+        boolean[][] compatible = new boolean[n][n];
+        int[] candidates = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                boolean ok = true;
+                for (int w = 1; w < n && ok; w++) {
+                    ok = a.ones[w][i] <= b.ones[w][k] && a.zeros(w, i) <= b.zeros(w, k);
+                }
+                compatible[i][k] = ok;
+                if (ok) {
+                    candidates[i]++;
+                }
+            }
+            if (candidates[i] == 0) {
+                return false;
+            }
+        }
+
+        // Assign the most constrained wires first.
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(candidates[x], candidates[y]));
+        int[] wireOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            wireOrder[i] = order[i];
+        }
+        long[] fullA = new long[a.set.size() + n + 1];
+        int k = 0;
+        for (int w = 0; w <= n; w++) {
+            fullA[k++] = PackedSequence.mask(w);
+        }
+        long[] unsortedA = a.set.toArray();
+        System.arraycopy(unsortedA, 0, fullA, k, unsortedA.length);
+
+        Search search = new Search(n, compatible, wireOrder, fullA, b.set);
+        return search.assign(0);
+    }
+
+    /**
+     * Backtracking over permutations consistent with the compatibility of wires.
+     */
+    private static final class Search {
+
+        private final int n;
+        private final boolean[][] compatible;
+        private final int[] wireOrder;
+        private final long[] fullA;
+        private final SequenceSet setB;
+        private final int[] target;
+        private final boolean[] used;
+        private int checked;
+
+        Search(int n, boolean[][] compatible, int[] wireOrder, long[] fullA, SequenceSet setB) {
+            this.n = n;
+            this.compatible = compatible;
+            this.wireOrder = wireOrder;
+            this.fullA = fullA;
+            this.setB = setB;
+            target = new int[n];
+            used = new boolean[n];
+        }
+
+        boolean assign(int depth) {
+            if (checked >= MAX_PERMUTATIONS) {
+                return false;
+            }
+            if (depth == n) {
+                checked++;
+                return mapsInto();
+            }
+            int i = wireOrder[depth];
+            for (int k = 0; k < n; k++) {
+                if (!used[k] && compatible[i][k]) {
+                    used[k] = true;
+                    target[i] = k;
+                    if (assign(depth + 1)) {
+                        return true;
+                    }
+                    used[k] = false;
+                }
+            }
+            return false;
+        }
+
+        private boolean mapsInto() {
+            for (long seq : fullA) {
+                long image = 0;
+                for (int i = 0; i < n; i++) {
+                    if (PackedSequence.get(seq, n, i) == 1) {
+                        image |= 1L << (n - 1 - target[i]);
+                    }
+                }
+                if (!PackedSequence.isSorted(image) && !setB.contains(image)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package search;
+
+import hardware.CanonicalForm;
+import hardware.Network;
+import hardware.PackedSequence;
+import hardware.SequenceSet;
+import hardware.Utilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Searches for suffixes that extend a fixed prefix network (by default the Green filter) to a
+ * sorting network, i.e., sequences of comparators that leave no unsorted outputs when applied to
+ * the unsorted outputs of the prefix. The number of unsorted outputs that remain is used as the
+ * heuristic. Children of a node are generated on all cores, and the search stops when it runs
+ * out of its time or node budget.
+ *
+ * @author Drue Coles
+ */
+public class SuffixSearch {
+
+    /**
+     * The order in which partial suffixes are explored.
+     */
+    public enum Strategy {
+        /**
+         * Always expands the partial suffixes with the fewest unsorted outputs, in batches.
+         */
+        BEST_FIRST,
+        /**
+         * Extends suffixes one comparator at a time, keeping only the most promising ones at each
+         * length.
+         */
+        BEAM,
+        /**
+         * Depth-first search bounded by a cost limit that is raised until a solution is found.
+         */
+        ITERATIVE_DEEPENING
+    }
+
+    /**
+     * The quantity that the search minimizes.
+     */
+    public enum Objective {
+        /**
+         * the number of comparators in the suffix
+         */
+        LENGTH,
+        /**
+         * the depth of the suffix
+         */
+        DEPTH
+    }
+
+    private static final int BATCH_PER_CORE = 4;
+
+    private final int numWires;
+    private final SequenceSet prefixOutputs;
+    private final Strategy strategy;
+    private final Objective objective;
+
+    private long timeLimitMillis = 60_000;
+    private long nodeLimit = Long.MAX_VALUE;
+    private int beamWidth = 1000;
+    private int maxLength = 40;
+    private int maxResults = 10;
+    private boolean subsumptionPruning = true;
+
+    // state of the search in progress
+    private final AtomicLong nodesExpanded = new AtomicLong();
+    private long deadline;
+    private volatile boolean budgetExhausted;
+    private int bestCost;
+    private final ArrayList<SearchNode> solutions = new ArrayList<>();
+
+    /**
+     * Creates a search for suffixes of the Green filter.
+     *
+     * @param strategy the order in which partial suffixes are explored
+     * @param objective the quantity to minimize
+     */
+    public SuffixSearch(Strategy strategy, Objective objective) {
+        this(Utilities.getGreenFilter(), strategy, objective);
+    }
+
+    /**
+     * Creates a search for suffixes of a given prefix network.
+     *
+     * @param prefix a network on at most 64 wires
+     * @param strategy the order in which partial suffixes are explored
+     * @param objective the quantity to minimize
+     */
+    public SuffixSearch(Network prefix, Strategy strategy, Objective objective) {
+        this.numWires = prefix.getNumberOfWires();
+        this.prefixOutputs = Utilities.getCachedOutputs(prefix);
+        this.strategy = strategy;
+        this.objective = objective;
+    }
+
+    /**
+     * @param millis the time after which the search stops (60 seconds by default)
+     */
+    public void setTimeLimit(long millis) {
+        timeLimitMillis = millis;
+    }
+
+    /**
+     * @param nodes the number of node expansions after which the search stops (unlimited by
+     * default)
+     */
+    public void setNodeLimit(long nodes) {
+        nodeLimit = nodes;
+    }
+
+    /**
+     * @param width the number of partial suffixes kept at each length by a beam search (1000 by
+     * default)
+     */
+    public void setBeamWidth(int width) {
+        beamWidth = width;
+    }
+
+    /**
+     * @param length the largest number of comparators in a suffix (40 by default)
+     */
+    public void setMaxLength(int length) {
+        maxLength = length;
+    }
+
+    /**
+     * @param results the largest number of equally good suffixes to report (10 by default)
+     */
+    public void setMaxResults(int results) {
+        maxResults = results;
+    }
+
+    /**
+     * @param enabled whether a beam search discards partial suffixes whose outputs are subsumed
+     * by those of a partial suffix it keeps (enabled by default); like the beam itself, this is a
+     * heuristic that can discard the only partial suffixes leading to the best suffix
+     * @see Subsumption
+     */
+    public void setSubsumptionPruning(boolean enabled) {
+        subsumptionPruning = enabled;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @return the best suffixes found and statistics about the search
+     */
+    public SearchResult search() {
+        long start = System.nanoTime();
+        deadline = start + timeLimitMillis * 1_000_000;
+        nodesExpanded.set(0);
+        budgetExhausted = false;
+        bestCost = Integer.MAX_VALUE;
+        solutions.clear();
+
+        SearchNode root = new SearchNode(prefixOutputs);
+        if (root.outputs.isEmpty()) {
+            record(root);
+        } else {
+            switch (strategy) {
+                case BEST_FIRST:
+                    bestFirst(root);
+                    break;
+                case BEAM:
+                    beam(root);
+                    break;
+                default:
+                    iterativeDeepening(root);
+            }
+        }
+
+        ArrayList<Network> suffixes = new ArrayList<>();
+        solutions.stream().forEach((node) -> {
+            suffixes.add(node.toNetwork());
+        });
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(suffixes, nodesExpanded.get(), elapsed, !budgetExhausted);
+    }
+
+    /**
+     * Repeatedly expands a batch of the open nodes with the fewest unsorted outputs. A node is
+     * opened again only if it reaches a state with fewer comparators than before. The state
+     * includes the last comparator, because {@link #expand} skips one order of commuting
+     * comparators: two nodes with the same outputs but different last comparators have different
+     * children, and keeping only one of them could lose the best suffix. For the same reason the
+     * outputs are compared exactly rather than up to a symmetry of the wires. When minimizing
+     * depth, the state also includes the depth reaching each wire, since of two nodes of equal
+     * depth one may be able to add comparators to its last layer and the other not.
+     */
+    private void bestFirst(SearchNode root) {
+        PriorityQueue<SearchNode> open = new PriorityQueue<>(this::compareNodes);
+        HashMap<State, Integer> shortestOfState = new HashMap<>();
+        open.add(root);
+        int batchSize = BATCH_PER_CORE * Runtime.getRuntime().availableProcessors();
+        while (!open.isEmpty() && !outOfBudget()) {
+            ArrayList<SearchNode> batch = new ArrayList<>();
+            while (batch.size() < batchSize && !open.isEmpty()) {
+                SearchNode node = open.poll();
+                if (canImprove(node)) {
+                    batch.add(node);
+                }
+            }
+            for (SearchNode child : expandAll(batch)) {
+                if (child.outputs.isEmpty()) {
+                    record(child);
+                    continue;
+                }
+                State state = new State(child, objective);
+                Integer seen = shortestOfState.get(state);
+                if (seen == null || child.length < seen) {
+                    shortestOfState.put(state, child.length);
+                    open.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extends the beam one comparator at a time, keeping the partial suffixes with the fewest
+     * unsorted outputs, until some suffix leaves none. Of partial suffixes with equivalent outputs
+     * only the best is kept, and partial suffixes that are subsumed by one already kept, at no
+     * lower cost, are discarded rather than taking a place in the beam. Both prunings are
+     * heuristic: a kept node is expanded with its own last comparator, which rules out a
+     * different order of commuting comparators than that of a discarded node, so it need not
+     * reach the discarded node's completions.
+     */
+    private void beam(SearchNode root) {
+        List<SearchNode> level = Collections.singletonList(root);
+        while (!level.isEmpty() && solutions.isEmpty() && !outOfBudget()) {
+            HashMap<CanonicalForm.Key, SearchNode> distinct = new HashMap<>();
+            for (SearchNode child : expandAll(level)) {
+                if (child.outputs.isEmpty()) {
+                    record(child);
+                }
+                CanonicalForm.Key key = CanonicalForm.key(child.outputs);
+                SearchNode other = distinct.get(key);
+                if (other == null || compareNodes(child, other) < 0) {
+                    distinct.put(key, child);
+                }
+            }
+            ArrayList<SearchNode> next = new ArrayList<>(distinct.values());
+            next.sort(this::compareNodes);
+            level = subsumptionPruning ? selectUndominated(next)
+                    : next.subList(0, Math.min(beamWidth, next.size()));
+        }
+    }
+
+    /**
+     * Selects up to a beam width of nodes, in order, skipping any node whose outputs are subsumed
+     * by those of a selected node of no greater cost. {@link Subsumption} guarantees that every
+     * completion of a skipped node has a counterpart for the selected node, but not one that
+     * {@link #expand} generates, so the pruning is heuristic.
+     */
+    private List<SearchNode> selectUndominated(List<SearchNode> nodes) {
+        ArrayList<SearchNode> kept = new ArrayList<>();
+        ArrayList<Subsumption.Profile> keptProfiles = new ArrayList<>();
+        for (SearchNode node : nodes) {
+            if (kept.size() >= beamWidth || outOfBudget()) {
+                break;
+            }
+            Subsumption.Profile profile = Subsumption.profile(node.outputs);
+            int cost = node.cost(objective);
+            boolean dominated = IntStream.range(0, kept.size()).parallel()
+                    .anyMatch((k) -> kept.get(k).cost(objective) <= cost
+                            && Subsumption.subsumes(keptProfiles.get(k), profile));
+            if (!dominated) {
+                kept.add(node);
+                keptProfiles.add(profile);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Runs depth-first searches with a cost limit of 1, 2, ... until a solution is found. The
+     * subtrees below the first comparator are searched in parallel.
+     */
+    private void iterativeDeepening(SearchNode root) {
+        List<SearchNode> firstLevel = expand(root);
+        for (int limit = 1; limit <= maxLength && solutions.isEmpty() && !outOfBudget();
+                limit++) {
+            int costLimit = limit;
+            firstLevel.parallelStream().forEach((child) -> {
+                depthFirst(child, costLimit);
+            });
+        }
+    }
+
+    private void depthFirst(SearchNode node, int costLimit) {
+        if (node.outputs.isEmpty()) {
+            record(node);
+            return;
+        }
+        if (node.length >= maxLength || outOfBudget()) {
+            return;
+        }
+        // With the depth objective, a layer holds at most n / 2 comparators.
+        int lengthLimit = objective == Objective.DEPTH ? costLimit * (numWires / 2) : costLimit;
+        if (node.length >= lengthLimit) {
+            return;
+        }
+        List<SearchNode> children = expand(node);
+        children.sort(this::compareNodes);
+        for (SearchNode child : children) {
+            if (child.cost(objective) <= costLimit) {
+                depthFirst(child, costLimit);
+            }
+        }
+    }
+
+    /**
+     * Expands nodes in parallel.
+     */
+    private List<SearchNode> expandAll(List<SearchNode> nodes) {
+        return nodes.parallelStream().flatMap((node) -> expand(node).stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Generates the children of a node: one for each comparator that swaps at least one of the
+     * remaining unsorted outputs. Of two adjacent comparators on disjoint wires, which commute,
+     * only one order is generated.
+     */
+    private List<SearchNode> expand(SearchNode node) {
+        nodesExpanded.incrementAndGet();
+        ArrayList<SearchNode> children = new ArrayList<>();
+        if (node.length >= maxLength) {
+            return children;
+        }
+        for (int i = 0; i < numWires; i++) {
+            for (int j = i + 1; j < numWires; j++) {
+                boolean commutes = i != node.top && i != node.bottom && j != node.top
+                        && j != node.bottom;
+                if (commutes && (i < node.top || (i == node.top && j < node.bottom))) {
+                    continue;
+                }
+                SequenceSet outputs = apply(node.outputs, i, j);
+                if (outputs != null) {
+                    children.add(node.extend(i, j, outputs));
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Applies a comparator to a set of outputs.
+     *
+     * @return the unsorted outputs after the comparator, or null if it swaps none of the outputs
+     */
+    private SequenceSet apply(SequenceSet outputs, int i, int j) {
+        long topBit = 1L << (numWires - 1 - i);
+        long bottomBit = 1L << (numWires - 1 - j);
+        boolean[] fires = new boolean[1];
+        SequenceSet result = new SequenceSet(numWires, outputs.size());
+        outputs.forEach((seq) -> {
+            if ((seq & topBit) != 0 && (seq & bottomBit) == 0) {
+                fires[0] = true;
+                seq ^= topBit | bottomBit;
+            }
+            if (!PackedSequence.isSorted(seq)) {
+                result.add(seq);
+            }
+        });
+        return fires[0] ? result : null;
+    }
+
+    /**
+     * Orders nodes by number of unsorted outputs, then by cost, then by length.
+     */
+    private int compareNodes(SearchNode a, SearchNode b) {
+        int c = Integer.compare(a.outputs.size(), b.outputs.size());
+        if (c == 0) {
+            c = Integer.compare(a.cost(objective), b.cost(objective));
+        }
+        return c != 0 ? c : Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Returns true if some extension of a node could cost no more than the best solution found.
+     */
+    private synchronized boolean canImprove(SearchNode node) {
+        if (bestCost == Integer.MAX_VALUE) {
+            return true;
+        }
+        // Appending a comparator adds 1 to the length, but may leave the depth unchanged.
+        return objective == Objective.DEPTH ? node.depth <= bestCost : node.length < bestCost;
+    }
+
+    private synchronized void record(SearchNode node) {
+        int cost = node.cost(objective);
+        if (cost < bestCost) {
+            bestCost = cost;
+            solutions.clear();
+        }
+        if (cost == bestCost && solutions.size() < maxResults) {
+            solutions.add(node);
+        }
+    }
+
+    private boolean outOfBudget() {
+        if (!budgetExhausted && (nodesExpanded.get() >= nodeLimit
+                || System.nanoTime() >= deadline)) {
+            budgetExhausted = true;
+        }
+        return budgetExhausted;
+    }
+
+    /**
+     * What determines the children of a node and the cost of completing it: its unsorted outputs
+     * and its last comparator, and under the depth objective the depth reaching each wire.
+     */
+    private static final class State {
+
+        private final SequenceSet outputs;
+        private final int top;
+        private final int bottom;
+        private final int[] wireDepth; // null under the length objective
+
+        State(SearchNode node, Objective objective) {
+            outputs = node.outputs;
+            top = node.top;
+            bottom = node.bottom;
+            wireDepth = objective == Objective.DEPTH ? node.wireDepth : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State other = (State) o;
+            return top == other.top && bottom == other.bottom
+                    && Arrays.equals(wireDepth, other.wireDepth) && outputs.equals(other.outputs);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((outputs.hashCode() * 31 + top) * 31 + bottom) * 31
+                    + Arrays.hashCode(wireDepth);
+        }
+    }
+
+    /**
+     * Runs a search for suffixes of the Green filter from the command line and prints the
+     * results.
+     *
+     * @param args strategy (BEST_FIRST, BEAM or ITERATIVE_DEEPENING), objective (LENGTH or
+     * DEPTH) and time limit in seconds; all optional
+     */
+    public static void main(String[] args) {
+        Strategy strategy = args.length > 0 ? Strategy.valueOf(args[0]) : Strategy.BEAM;
+        Objective objective = args.length > 1 ? Objective.valueOf(args[1]) : Objective.LENGTH;
+        SuffixSearch search = new SuffixSearch(strategy, objective);
+        if (args.length > 2) {
+            search.setTimeLimit(Long.parseLong(args[2]) * 1000);
+        }
+        System.out.println(search.search());
+    }
+}